@@ -3,10 +3,12 @@ package com.example.prototypesetup;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.example.prototypesetup.config.RsaKeyProperties;
 
 @EnableConfigurationProperties(RsaKeyProperties.class)
+@EnableScheduling
 @SpringBootApplication
 public class PrototypeSetupApplication {
     public static void main(String[] args) {
@@ -0,0 +1,133 @@
+package com.example.prototypesetup.config;
+
+import com.example.prototypesetup.controller.AppUserController;
+import com.example.prototypesetup.controller.DeviceController;
+import com.example.prototypesetup.controller.LoanController;
+import com.example.prototypesetup.service.ActionLogWriter;
+import com.example.prototypesetup.service.ActionLogWriter.ActionLogEvent;
+import com.example.prototypesetup.service.ActionLogWriter.RecordType;
+import com.example.prototypesetup.service.ActionLogWriter.UserAction;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Writes one action_log row per successful call to a handler of AppUserController, LoanController or
+    DeviceController that is marked @Audited; the annotation names the action (CREATE, UPDATE, DELETE).
+    Unmarked handlers, e.g. maintenance calls like POST /api/loans/open/rebuild, are not logged.
+    - The user is the JWT subject (email); the writer thread maps it to app_user_id.
+    - The affected record id comes from the path variable ({id}, {loan_id}). Create endpoints have
+      none, so they report the new ids through recordCreatedId(). Bulk endpoints that do not know the
+      new ids (the CSV import) write one summary row without a record id, described via recordSummary().
+    - The record columns are foreign keys, and a deleted row no longer exists when the event is written,
+      so DELETE rows leave them NULL and name the deleted id in action_details instead.
+    - afterCompletion() only builds an event and queues it, the insert happens in ActionLogWriter.
+*/
+@Component
+public class ActionLogInterceptor implements HandlerInterceptor {
+
+    private static final String CREATED_IDS_ATTRIBUTE = ActionLogInterceptor.class.getName() + ".createdIds";
+    private static final String SUMMARY_ATTRIBUTE = ActionLogInterceptor.class.getName() + ".summary";
+
+    private static final Map<Class<?>, RecordType> AUDITED_CONTROLLERS = Map.of(
+            AppUserController.class, RecordType.USER,
+            LoanController.class, RecordType.LOAN,
+            DeviceController.class, RecordType.DEVICE);
+
+    private final ActionLogWriter actionLogWriter;
+
+    public ActionLogInterceptor(ActionLogWriter actionLogWriter) {
+        this.actionLogWriter = actionLogWriter;
+    }
+
+    // Called by create endpoints so the new record's id ends up in action_log
+    public static void recordCreatedId(Number id) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null || id == null) return;
+        @SuppressWarnings("unchecked")
+        List<Long> ids = (List<Long>) attributes.getAttribute(CREATED_IDS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (ids == null) {
+            ids = new ArrayList<>();
+            attributes.setAttribute(CREATED_IDS_ATTRIBUTE, ids, RequestAttributes.SCOPE_REQUEST);
+        }
+        ids.add(id.longValue());
+    }
+
+    // Called by bulk endpoints to describe what their single action_log row covers, e.g. "created 40 devices"
+    public static void recordSummary(String summary) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null || summary == null) return;
+        attributes.setAttribute(SUMMARY_ATTRIBUTE, summary, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (ex != null || response.getStatus() >= 400 || !(handler instanceof HandlerMethod method)) {
+            return;
+        }
+        Audited audited = method.getMethodAnnotation(Audited.class);
+        RecordType recordType = AUDITED_CONTROLLERS.get(method.getBeanType());
+        if (audited == null || recordType == null) return;
+        UserAction action = audited.value();
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) return;
+
+        String currentUrl = request.getRequestURI();
+        String apiEndpoint = request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String details = method.getMethod().getName() + " -> HTTP " + response.getStatus();
+        Object summary = request.getAttribute(SUMMARY_ATTRIBUTE);
+        if (summary != null) {
+            details += ", " + summary;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        List<Long> recordIds = recordIds(request);
+        if (recordIds.isEmpty()) {
+            recordIds = new ArrayList<>();
+            recordIds.add(null);
+        }
+        for (Long recordId : recordIds) {
+            if (action == UserAction.DELETE) {
+                String deletedDetails = recordId == null ? details
+                        : details + ", deleted " + recordType.name().toLowerCase() + " id " + recordId;
+                actionLogWriter.submit(new ActionLogEvent(authentication.getName(), action, recordType, null,
+                        currentUrl, apiEndpoint, deletedDetails, now));
+            } else {
+                actionLogWriter.submit(new ActionLogEvent(authentication.getName(), action, recordType, recordId,
+                        currentUrl, apiEndpoint, details, now));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> recordIds(HttpServletRequest request) {
+        List<Long> created = (List<Long>) request.getAttribute(CREATED_IDS_ATTRIBUTE);
+        if (created != null) return created;
+
+        Map<String, String> pathVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        List<Long> ids = new ArrayList<>();
+        // The audited endpoints take exactly one path variable, the record id ({id} or {loan_id})
+        if (pathVariables != null && pathVariables.size() == 1) {
+            try {
+                ids.add(Long.valueOf(pathVariables.values().iterator().next()));
+            } catch (NumberFormatException e) {
+                // Not a numeric id, log the call without a record id
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.prototypesetup.config;
+
+import com.example.prototypesetup.service.ActionLogWriter.UserAction;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a controller method whose successful calls ActionLogInterceptor writes to action_log as the given action
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Audited {
+
+    UserAction value();
+}
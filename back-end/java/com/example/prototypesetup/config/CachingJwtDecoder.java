@@ -0,0 +1,105 @@
+package com.example.prototypesetup.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Remembers tokens that already passed signature and claim validation, so the jwt-token cookie a
+    browser sends with every request is RSA-verified once per token instead of once per request.
+    - Keyed by the SHA-256 of the token text: a different token (or a tampered one) never matches,
+      and the raw token is not kept in memory.
+    - Bounded LRU (jwt.decode-cache-size entries). An entry is dropped when its token expires and
+      expired entries are swept once a minute, so an expired token always goes back to the delegate,
+      which rejects it.
+    - Tokens that fail to decode are not cached.
+    Metrics: jwt.decode.duration{result=hit|miss} (their counts give the hit ratio), jwt.decode.cache.size
+*/
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final JwtDecoder delegate;
+    private final Timer hitTimer;
+    private final Timer missTimer;
+
+    // Guarded by "this", like nextSweep
+    private final Map<String, Jwt> cache;
+    private long nextSweep = System.nanoTime() + SWEEP_INTERVAL_NANOS;
+
+    public CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, int cacheSize) {
+        this.delegate = delegate;
+        this.hitTimer = meterRegistry.timer("jwt.decode.duration", "result", "hit");
+        this.missTimer = meterRegistry.timer("jwt.decode.duration", "result", "miss");
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Jwt> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        Gauge.builder("jwt.decode.cache.size", this, CachingJwtDecoder::size).register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long started = System.nanoTime();
+        String key = digest(token);
+        Instant now = Instant.now();
+        synchronized (this) {
+            Jwt cached = cache.get(key);
+            if (cached != null) {
+                if (isLive(cached, now)) {
+                    hitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                    return cached;
+                }
+                cache.remove(key);
+            }
+        }
+
+        Jwt jwt = delegate.decode(token);
+        synchronized (this) {
+            if (isLive(jwt, now)) cache.put(key, jwt);
+            if (started - nextSweep > 0) {
+                nextSweep = started + SWEEP_INTERVAL_NANOS;
+                cache.values().removeIf(cached -> !isLive(cached, now));
+            }
+        }
+        missTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return jwt;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    // Tokens without exp are never cached: only the delegate decides about them
+    private static boolean isLive(Jwt jwt, Instant now) {
+        return jwt.getExpiresAt() != null && now.isBefore(jwt.getExpiresAt());
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.prototypesetup.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -8,6 +10,8 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
@@ -20,6 +24,7 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import java.util.Arrays; // Needed for Arrays.asList
 
+import com.example.prototypesetup.service.TokenRevocationService;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.RSAKey;
@@ -48,6 +53,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/user-roles/**").hasAuthority("SCOPE_Admin")
+                        .requestMatchers(HttpMethod.GET, "/api/app-users/search").hasAnyAuthority("SCOPE_Admin", "SCOPE_Employee")
                         .requestMatchers("/api/app-users/**").hasAuthority("SCOPE_Admin")
                         .requestMatchers(HttpMethod.POST, "/api/locations/**").hasAuthority("SCOPE_Admin")
                         .requestMatchers(HttpMethod.PUT, "/api/locations/**").hasAuthority("SCOPE_Admin")
@@ -55,6 +61,8 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/api/devices/**").hasAuthority("SCOPE_Admin")
                         .requestMatchers(HttpMethod.PUT, "/api/devices/**").hasAuthority("SCOPE_Admin")
                         .requestMatchers(HttpMethod.DELETE, "/api/devices/**").hasAuthority("SCOPE_Admin")
+                        .requestMatchers(HttpMethod.POST, "/api/stats/**").hasAuthority("SCOPE_Admin")
+                        .requestMatchers("/api/loans/open/consistency", "/api/loans/open/rebuild").hasAuthority("SCOPE_Admin")
                         .anyRequest().hasAnyAuthority("SCOPE_Admin", "SCOPE_Employee")
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
@@ -81,6 +89,9 @@ public class SecurityConfig {
         // --- Configure Allowed Headers ---
         // Allow all headers, which is often necessary for Authorization/Content-Type.
         configuration.setAllowedHeaders(Arrays.asList("*")); 
+
+        // --- Expose ETag so the browser can send it back in If-Match ---
+        configuration.setExposedHeaders(Arrays.asList("ETag", "X-Next-Cursor", "X-Total-Count"));
         
         // --- Important for JWT in Cookies ---
         // Must be 'true' for the browser to send cookies, HTTP authentication, and client-side SSL certificates.
@@ -112,9 +123,20 @@ public class SecurityConfig {
         };
     }
 
+    // Tokens are RSA-verified once, then served from CachingJwtDecoder until they expire.
+    // The revocation check runs on every request, cached token or not.
     @Bean
-    JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withPublicKey(rsaKeys.publickey()).build();
+    JwtDecoder jwtDecoder(MeterRegistry meterRegistry,
+                          TokenRevocationService tokenRevocationService,
+                          @Value("${jwt.decode-cache-size:10000}") int cacheSize) {
+        JwtDecoder verified = new CachingJwtDecoder(NimbusJwtDecoder.withPublicKey(rsaKeys.publickey()).build(), meterRegistry, cacheSize);
+        return token -> {
+            Jwt jwt = verified.decode(token);
+            if (tokenRevocationService.isRevoked(jwt)) {
+                throw new BadJwtException("Token has been revoked");
+            }
+            return jwt;
+        };
     }
 
     @Bean
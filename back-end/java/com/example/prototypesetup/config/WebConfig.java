@@ -0,0 +1,20 @@
+package com.example.prototypesetup.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ActionLogInterceptor actionLogInterceptor;
+
+    public WebConfig(ActionLogInterceptor actionLogInterceptor) {
+        this.actionLogInterceptor = actionLogInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(actionLogInterceptor).addPathPatterns("/api/**");
+    }
+}
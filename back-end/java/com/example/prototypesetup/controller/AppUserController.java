@@ -1,10 +1,19 @@
 package com.example.prototypesetup.controller;
 
+import com.example.prototypesetup.config.ActionLogInterceptor;
+import com.example.prototypesetup.config.Audited;
 import com.example.prototypesetup.entity.*;
 import com.example.prototypesetup.repository.*;
+import com.example.prototypesetup.service.ActionLogWriter.UserAction;
+import com.example.prototypesetup.service.AppUserIdCache;
+import com.example.prototypesetup.service.LoginCredentialService;
 import com.example.prototypesetup.service.PasswordService;
+import com.example.prototypesetup.service.ReferenceDataService;
+import com.example.prototypesetup.service.UserSearchIndex;
+import com.example.prototypesetup.service.UserSearchIndex.Match;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -23,17 +32,46 @@ public class AppUserController {
     private AppUserRepository appUserRepository;
 
     @Autowired
-    private UserRoleRepository userRoleRepository;
+    private ReferenceDataService referenceDataService;
     
     @Autowired
     private PasswordService passwordService;
 
+    @Autowired
+    private LoginCredentialService loginCredentialService;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private AppUserIdCache appUserIdCache;
+
+    private static final int MIN_SEARCH_LENGTH = 2;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     // GET all users
     @GetMapping
     public List<AppUser> getAllUsers() {
         return appUserRepository.findAll();
     }
 
+    // GET users whose name, email or phone number resembles q, best match first (front desk search).
+    // Only Admins see staff accounts; everyone else gets citizens only.
+    @GetMapping("/search")
+    public List<UserSearchResultDTO> searchUsers(@RequestParam("q") String q,
+                                                 @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                 Authentication authentication) {
+        if (q.strip().length() < MIN_SEARCH_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search text must have at least " + MIN_SEARCH_LENGTH + " characters");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "SCOPE_Admin".equals(authority.getAuthority()));
+        return userSearchIndex.search(q, limit, !admin).stream().map(UserSearchResultDTO::new).toList();
+    }
+
     // GET by ID
     @GetMapping("/{id}")
     public ResponseEntity<AppUser> getUserById(@PathVariable("id") Long id) {
@@ -45,6 +83,7 @@ public class AppUserController {
 
    // CREATE user
 @PostMapping
+@Audited(UserAction.CREATE)
 public ResponseEntity<AppUser> createUser(@RequestBody AppUser user) {
     // Validate role
     if (user.getRole() == null || user.getRole().getRoleId() == null) {
@@ -52,7 +91,7 @@ public ResponseEntity<AppUser> createUser(@RequestBody AppUser user) {
     }
 
     // Fetch the actual role from DB
-    UserRole role = userRoleRepository.findById(user.getRole().getRoleId())
+    UserRole role = referenceDataService.findUserRole(user.getRole().getRoleId())
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Role not found"));
     user.setRole(role);
     
@@ -75,6 +114,9 @@ public ResponseEntity<AppUser> createUser(@RequestBody AppUser user) {
 
     // Save user with locations
     AppUser savedUser = appUserRepository.save(user);
+    loginCredentialService.forgetUnknownEmail(savedUser.getEmail());
+    userSearchIndex.put(savedUser);
+    ActionLogInterceptor.recordCreatedId(savedUser.getUserId());
     return ResponseEntity.status(HttpStatus.CREATED).body(savedUser);
 }
 
@@ -82,6 +124,7 @@ public ResponseEntity<AppUser> createUser(@RequestBody AppUser user) {
 
     // UPDATE user
     @PutMapping("/{id}")
+    @Audited(UserAction.UPDATE)
     public ResponseEntity<AppUser> updateUser(@PathVariable("id") Long id, @RequestBody AppUser updatedUser) {
         return appUserRepository.findById(id).map(user -> {
             user.setFullName(updatedUser.getFullName());
@@ -97,12 +140,15 @@ public ResponseEntity<AppUser> createUser(@RequestBody AppUser user) {
             user.setDateOfBirth(updatedUser.getDateOfBirth());
 
             if (updatedUser.getRole() != null) {
-                UserRole role = userRoleRepository.findById(updatedUser.getRole().getRoleId())
+                UserRole role = referenceDataService.findUserRole(updatedUser.getRole().getRoleId())
                         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Role not found"));
                 user.setRole(role);
             }
 
             AppUser savedUser = appUserRepository.save(user);
+            loginCredentialService.forgetUnknownEmail(savedUser.getEmail());
+            appUserIdCache.forgetUser(savedUser.getUserId());
+            userSearchIndex.put(savedUser);
             return ResponseEntity.ok(savedUser);
         }).orElseThrow(() ->
                 new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with ID " + id));
@@ -110,11 +156,39 @@ public ResponseEntity<AppUser> createUser(@RequestBody AppUser user) {
 
     // DELETE user
     @DeleteMapping("/{id}")
+    @Audited(UserAction.DELETE)
     public ResponseEntity<Void> deleteUser(@PathVariable("id") Long id) {
         if (!appUserRepository.existsById(id)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with ID " + id);
         }
         appUserRepository.deleteById(id);
+        appUserIdCache.forgetUser(id);
+        userSearchIndex.remove(id);
         return ResponseEntity.noContent().build();
     }
+
+    public static class UserSearchResultDTO {
+        private final Long user_id;
+        private final String full_name;
+        private final String email;
+        private final String contact_number;
+        private final String role_name;
+        private final double score;
+
+        public UserSearchResultDTO(Match match) {
+            this.user_id = match.user().userId();
+            this.full_name = match.user().fullName();
+            this.email = match.user().email();
+            this.contact_number = match.user().contactNumber();
+            this.role_name = match.user().roleName();
+            this.score = Math.round(match.score() * 100) / 100.0;
+        }
+
+        public Long getUser_id() { return user_id; }
+        public String getFull_name() { return full_name; }
+        public String getEmail() { return email; }
+        public String getContact_number() { return contact_number; }
+        public String getRole_name() { return role_name; }
+        public double getScore() { return score; }
+    }
 }
@@ -1,56 +1,97 @@
 package com.example.prototypesetup.controller;
 
-import com.example.prototypesetup.entity.AppUser;
 import com.example.prototypesetup.repository.AppUserRepository;
+import com.example.prototypesetup.repository.AppUserRepository.LoginCredentials;
+import com.example.prototypesetup.service.LoginCredentialService;
+import com.example.prototypesetup.service.LoginThrottle;
+import com.example.prototypesetup.service.TokenRevocationService;
 import com.example.prototypesetup.service.TokenService;
 import com.example.prototypesetup.service.PasswordService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.Collections;
+import java.util.Optional;
 
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private AppUserRepository appUserRepository;
     
+    @Autowired
+    private LoginCredentialService loginCredentialService;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
     @Autowired
     private TokenService tokenService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
     
     @Autowired
     private PasswordService passwordService;
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletResponse response) {        
+    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request, HttpServletResponse response) {
         try {
             String email = loginRequest.getEmail();
             String password = loginRequest.getPassword();
 
-            AppUser user = appUserRepository.findByEmail(email);
-            
-            if (user == null) {
+            // Turned away before any database read or Argon2 work
+            long retryAfterSeconds = loginThrottle.tryAcquire(request.getRemoteAddr(), email);
+            if (retryAfterSeconds > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                        .body("Too many login attempts, please try again later.");
+            }
+
+            Optional<LoginCredentials> credentials = loginCredentialService.find(email);
+
+            if (credentials.isEmpty()) {
                 return ResponseEntity.status(404).body("Account not found.");
             }
+            LoginCredentials user = credentials.get();
 
-            String dbPassword = user.getPassword();
+            String dbPassword = user.getPasswordHash();
             
             if (!passwordService.verifyPassword(password, dbPassword)) {
                 return ResponseEntity.status(401).body("Invalid password");
             }
 
+            if (!user.getActive()) {
+                return ResponseEntity.status(403).body("Account is deactivated.");
+            }
+
+            // Hashes made with an older, cheaper Argon2 cost are upgraded while we have the plain password
+            if (passwordService.needsRehash(dbPassword)) {
+                rehash(user.getUserId(), password, dbPassword);
+            }
+
             // Create Authentication object for token generation
             Authentication authentication = new UsernamePasswordAuthenticationToken(
                 email, 
                 null, 
-                Collections.singletonList(new SimpleGrantedAuthority(user.getRole().getRoleName()))
+                Collections.singletonList(new SimpleGrantedAuthority(user.getRoleName()))
             );
             
             // Generate JWT token
@@ -60,13 +101,31 @@ public class AuthController {
             // Return success response without token
             return ResponseEntity.ok("Login successful");
             
+        } catch (ResponseStatusException e) {
+            // 503 while the password hashing queue is full
+            return ResponseEntity.status(e.getStatusCode())
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getReason());
         } catch (Exception e) {
             return ResponseEntity.status(500).body("An unexpected error has occurred.");
         }
     }
 
+    // A failed upgrade must not fail the login: the old hash stays valid and is retried next time
+    private void rehash(Long userId, String password, String oldHash) {
+        try {
+            appUserRepository.replacePasswordHash(userId, oldHash, passwordService.hashPassword(password));
+        } catch (RuntimeException e) {
+            log.warn("Could not upgrade the password hash of user {}", userId, e);
+        }
+    }
+
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpServletResponse response) {
+    public ResponseEntity<?> logout(@AuthenticationPrincipal Jwt jwt, HttpServletResponse response) {
+        // A copy of the cookie (e.g. a stolen token) stops working too, not just this browser's
+        if (jwt != null) {
+            tokenRevocationService.revoke(jwt);
+        }
         tokenService.clearTokenCookie(response);
         return ResponseEntity.ok("Logout successful");
     }
@@ -0,0 +1,96 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.entity.DeviceStatus;
+import com.example.prototypesetup.entity.DeviceType;
+import com.example.prototypesetup.service.AvailabilityIndex;
+import com.example.prototypesetup.service.AvailabilityIndex.Cell;
+import com.example.prototypesetup.service.ReferenceDataService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/availability")
+public class AvailabilityController {
+
+    @Autowired
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    // GET device counts per location and device type, split by status, answered from memory
+    @GetMapping
+    public ResponseEntity<List<LocationAvailabilityDTO>> getAvailability(
+            @RequestParam(value = "locationId", required = false) Integer locationId) {
+        // Sorted by location id, then device type id
+        Map<Integer, LocationAvailabilityDTO> locations = new TreeMap<>(Comparator.nullsLast(Comparator.naturalOrder()));
+        availabilityIndex.snapshot(locationId).forEach((cell, devices) -> locations
+                .computeIfAbsent(cell.locationId(), id -> new LocationAvailabilityDTO(id,
+                        availabilityIndex.findLocationName(id).orElse(null)))
+                .add(cell, deviceTypeName(cell.deviceTypeId()), statusName(cell.deviceStatusId()), devices));
+        return ResponseEntity.ok(new ArrayList<>(locations.values()));
+    }
+
+    private String deviceTypeName(Integer deviceTypeId) {
+        return referenceDataService.findDeviceType(deviceTypeId)
+                .map(DeviceType::getDeviceTypeName)
+                .orElse(null);
+    }
+
+    private String statusName(Integer deviceStatusId) {
+        return referenceDataService.findDeviceStatus(deviceStatusId)
+                .map(DeviceStatus::getStatusName)
+                .orElse(String.valueOf(deviceStatusId));
+    }
+
+    public static class LocationAvailabilityDTO {
+        private final Integer location_id;
+        private final String location_name;
+        private int total;
+        private final Map<Integer, DeviceTypeAvailabilityDTO> deviceTypes =
+                new TreeMap<>(Comparator.nullsLast(Comparator.naturalOrder()));
+
+        public LocationAvailabilityDTO(Integer location_id, String location_name) {
+            this.location_id = location_id;
+            this.location_name = location_name;
+        }
+
+        void add(Cell cell, String deviceTypeName, String statusName, int devices) {
+            total += devices;
+            DeviceTypeAvailabilityDTO type = deviceTypes.computeIfAbsent(cell.deviceTypeId(),
+                    id -> new DeviceTypeAvailabilityDTO(id, deviceTypeName));
+            type.total += devices;
+            type.counts.merge(statusName, devices, Integer::sum);
+        }
+
+        public Integer getLocation_id() { return location_id; }
+        public String getLocation_name() { return location_name; }
+        public int getTotal() { return total; }
+        public List<DeviceTypeAvailabilityDTO> getDevice_types() { return new ArrayList<>(deviceTypes.values()); }
+    }
+
+    public static class DeviceTypeAvailabilityDTO {
+        private final Integer device_type_id;
+        private final String device_type_name;
+        private int total;
+        // Devices per status name, e.g. {"Available": 4, "Loaned": 2}
+        private final Map<String, Integer> counts = new TreeMap<>();
+
+        public DeviceTypeAvailabilityDTO(Integer device_type_id, String device_type_name) {
+            this.device_type_id = device_type_id;
+            this.device_type_name = device_type_name;
+        }
+
+        public Integer getDevice_type_id() { return device_type_id; }
+        public String getDevice_type_name() { return device_type_name; }
+        public int getTotal() { return total; }
+        public Map<String, Integer> getCounts() { return counts; }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.entity.Bin;
+import com.example.prototypesetup.entity.Device;
+import com.example.prototypesetup.repository.BinRepository;
+import com.example.prototypesetup.service.OpenLoanIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/bins")
+public class BinController {
+
+    @Autowired
+    private BinRepository binRepository;
+
+    @Autowired
+    private OpenLoanIndex openLoanIndex;
+
+    // GET all bins, or the bins of one location, each with its devices (one query)
+    @GetMapping
+    public ResponseEntity<List<BinDTO>> getBins(@RequestParam(value = "locationId", required = false) Integer locationId) {
+        List<BinDTO> bins = binRepository.findInventory(locationId).stream()
+                .map(bin -> new BinDTO(bin, openLoanIndex.isBinOut(bin.getBinId())))
+                .toList();
+        return ResponseEntity.ok(bins);
+    }
+
+    // GET the devices in one bin
+    @GetMapping("/{id}/devices")
+    public ResponseEntity<List<BinDeviceDTO>> getBinDevices(@PathVariable("id") Integer id) {
+        List<Device> devices = binRepository.findDevicesInBin(id);
+        // Only an empty result needs the second query to tell an empty bin from a missing one
+        if (devices.isEmpty() && !binRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Bin not found with ID " + id);
+        }
+        return ResponseEntity.ok(devices.stream().map(BinDeviceDTO::new).toList());
+    }
+
+    // Expects the bin's location and devices (with type and status) to be fetched
+    public static class BinDTO {
+        private final Integer bin_id;
+        private final String asset_tag;
+        private final String bin_contents;
+        private final Integer location_id;
+        private final String location_name;
+        private final Long created_by_user_id;
+        private final boolean on_loan;
+        private final List<BinDeviceDTO> devices;
+
+        public BinDTO(Bin bin, boolean on_loan) {
+            this.bin_id = bin.getBinId();
+            this.asset_tag = bin.getAssetTag();
+            this.bin_contents = bin.getBinContents();
+            this.location_id = bin.getLocationId();
+            this.location_name = bin.getLocation().getLocationName();
+            this.created_by_user_id = bin.getCreatedByUserId();
+            this.on_loan = on_loan;
+            this.devices = bin.getDevices().stream().map(BinDeviceDTO::new).toList();
+        }
+
+        public Integer getBin_id() { return bin_id; }
+        public String getAsset_tag() { return asset_tag; }
+        public String getBin_contents() { return bin_contents; }
+        public Integer getLocation_id() { return location_id; }
+        public String getLocation_name() { return location_name; }
+        public Long getCreated_by_user_id() { return created_by_user_id; }
+        public boolean getOn_loan() { return on_loan; }
+        public List<BinDeviceDTO> getDevices() { return devices; }
+    }
+
+    // Expects the device's type and status to be fetched
+    public static class BinDeviceDTO {
+        private final Long device_id;
+        private final String device_name;
+        private final String serial_number;
+        private final Integer device_type_id;
+        private final String device_type_name;
+        private final Integer device_status_id;
+        private final String status_name;
+        private final Integer location_id;
+
+        public BinDeviceDTO(Device device) {
+            this.device_id = device.getDeviceId();
+            this.device_name = device.getDeviceName();
+            this.serial_number = device.getSerialNumber();
+            this.device_type_id = device.getType().getDeviceTypeId();
+            this.device_type_name = device.getType().getDeviceTypeName();
+            this.device_status_id = device.getStatus().getDeviceStatusId();
+            this.status_name = device.getStatus().getStatusName();
+            this.location_id = device.getLocation().getLocationId();
+        }
+
+        public Long getDevice_id() { return device_id; }
+        public String getDevice_name() { return device_name; }
+        public String getSerial_number() { return serial_number; }
+        public Integer getDevice_type_id() { return device_type_id; }
+        public String getDevice_type_name() { return device_type_name; }
+        public Integer getDevice_status_id() { return device_status_id; }
+        public String getStatus_name() { return status_name; }
+        public Integer getLocation_id() { return location_id; }
+    }
+}
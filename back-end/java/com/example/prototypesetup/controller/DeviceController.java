@@ -1,14 +1,31 @@
 package com.example.prototypesetup.controller;
 
+import com.example.prototypesetup.config.ActionLogInterceptor;
+import com.example.prototypesetup.config.Audited;
 import com.example.prototypesetup.entity.*;
 import com.example.prototypesetup.repository.*;
+import com.example.prototypesetup.service.ActionLogWriter.UserAction;
+import com.example.prototypesetup.service.AvailabilityIndex;
+import com.example.prototypesetup.service.ChangeEventBroadcaster;
+import com.example.prototypesetup.service.DeviceImportService;
+import com.example.prototypesetup.service.DeviceImportService.ImportReport;
+import com.example.prototypesetup.service.ScanService;
+import com.example.prototypesetup.service.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/devices")
@@ -23,40 +40,79 @@ public class DeviceController {
     private AppUserRepository appUserRepository;
 
     @Autowired
-    private DeviceTypeRepository deviceTypeRepository;
+    private ReferenceDataService referenceDataService;
 
     @Autowired
-    private DeviceStatusRepository deviceStatusRepository;
+    private LocationRepository locationRepository;
 
     @Autowired
-    private LocationRepository locationRepository;
+    private AvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private DeviceImportService deviceImportService;
+
+    @Autowired
+    private ScanService scanService;
+
+    @Autowired
+    private ChangeEventBroadcaster changeEvents;
+
+    private static final String DEVICE_MODIFIED_MESSAGE = "Device was modified by another request. Reload it and try again.";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
 
-    // GET all devices
+    // GET devices, optionally filtered, one page at a time (DEFAULT_PAGE_SIZE unless size is given).
+    // Pass the next_cursor of a response as cursor to get the following page, or page for numbered pages.
     @GetMapping
-    public List<Device> getAllDevices() {
-        return deviceRepository.findAll();
+    public ResponseEntity<DevicePageResponse> getAllDevices(
+            @RequestParam(value = "statusId", required = false) Integer statusId,
+            @RequestParam(value = "typeId", required = false) Integer typeId,
+            @RequestParam(value = "locationId", required = false) Integer locationId,
+            @RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
+        if (cursor != null && page != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Use either cursor or page, not both");
+        }
+        if ((page != null && page < 0) || (size != null && (size < 1 || size > MAX_PAGE_SIZE))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "page must be 0 or more and size between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // Fetch one extra row to know whether another page follows without running a COUNT query
+        int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        int offset = page != null ? page * pageSize : 0;
+        List<DeviceRepository.DeviceSummary> rows = deviceRepository.findSummaries(
+                cursor, statusId, typeId, locationId, offset, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        Long nextCursor = hasMore ? rows.get(pageSize - 1).getDeviceId() : null;
+        return ResponseEntity.ok(new DevicePageResponse(toSummaryDTOs(rows), nextCursor, hasMore));
     }
 
     // GET device by ID
     @GetMapping("/{id}")
     public ResponseEntity<Device> getDeviceById(@PathVariable("id") Long id) {
         return deviceRepository.findById(id)
-                .map(ResponseEntity::ok)
+                .map(device -> ResponseEntity.ok().eTag(EntityTags.of(device.getVersion())).body(device))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Device not found with ID " + id));
     }
 
     // POST - Create new device
     @PostMapping
+    @Audited(UserAction.CREATE)
     public ResponseEntity<Device> createDevice(@RequestBody Device device) {
         // Validate relationships
         if (device.getType() != null) {
-            DeviceType type = deviceTypeRepository.findById(device.getType().getDeviceTypeId())
+            DeviceType type = referenceDataService.findDeviceType(device.getType().getDeviceTypeId())
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid DeviceType ID"));
             device.setType(type);
         }
 
         if (device.getStatus() != null) {
-            DeviceStatus status = deviceStatusRepository.findById(device.getStatus().getDeviceStatusId())
+            DeviceStatus status = referenceDataService.findDeviceStatus(device.getStatus().getDeviceStatusId())
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid DeviceStatus ID"));
             device.setStatus(status);
         }
@@ -74,14 +130,42 @@ public class DeviceController {
         }
 
         Device savedDevice = deviceRepository.save(device);
+        AvailabilityIndex.Cell created = AvailabilityIndex.cellOf(savedDevice);
+        availabilityIndex.recordMove(null, created);
+        changeEvents.publishDeviceChange(savedDevice.getDeviceId(), null, created);
+        ActionLogInterceptor.recordCreatedId(savedDevice.getDeviceId());
         return ResponseEntity.status(HttpStatus.CREATED).body(savedDevice);
     }
 
+    // POST - Bulk import devices from CSV, sent as the raw body (text/csv) or as the multipart field "file".
+    // 201 with a per-row error report when at least one device was created, 400 with the report otherwise.
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Audited(UserAction.CREATE)
+    public ResponseEntity<ImportReport> importDevices(InputStream body, Authentication authentication) throws IOException {
+        return importReport(deviceImportService.importCsv(body, currentUserId(authentication)));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Audited(UserAction.CREATE)
+    public ResponseEntity<ImportReport> importDevicesFile(@RequestParam("file") MultipartFile file,
+                                                          Authentication authentication) throws IOException {
+        try (InputStream body = file.getInputStream()) {
+            return importReport(deviceImportService.importCsv(body, currentUserId(authentication)));
+        }
+    }
+
     // PUT - Update existing device
     @PutMapping("/{id}")
-    public ResponseEntity<Device> updateDevice(@PathVariable("id") Long id, @RequestBody Device updatedDevice) {
+    @Audited(UserAction.UPDATE)
+    public ResponseEntity<Device> updateDevice(@PathVariable("id") Long id,
+                                               @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                               @RequestBody Device updatedDevice) {
         Device device = deviceRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Device not found with ID " + id));
+        if (!EntityTags.matches(ifMatch, device.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, DEVICE_MODIFIED_MESSAGE);
+        }
+        AvailabilityIndex.Cell before = AvailabilityIndex.cellOf(device);
 
         if (updatedDevice.getDeviceName() != null)
             device.setDeviceName(updatedDevice.getDeviceName());
@@ -89,13 +173,13 @@ public class DeviceController {
             device.setSerialNumber(updatedDevice.getSerialNumber());
 
         if (updatedDevice.getType() != null) {
-            DeviceType type = deviceTypeRepository.findById(updatedDevice.getType().getDeviceTypeId())
+            DeviceType type = referenceDataService.findDeviceType(updatedDevice.getType().getDeviceTypeId())
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid DeviceType ID"));
             device.setType(type);
         }
 
         if (updatedDevice.getStatus() != null) {
-            DeviceStatus status = deviceStatusRepository.findById(updatedDevice.getStatus().getDeviceStatusId())
+            DeviceStatus status = referenceDataService.findDeviceStatus(updatedDevice.getStatus().getDeviceStatusId())
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid DeviceStatus ID"));
             device.setStatus(status);
         }
@@ -112,16 +196,97 @@ public class DeviceController {
             device.setCreatedBy(user);
         }
 
-        Device saved = deviceRepository.save(device);
-        return ResponseEntity.ok(saved);
+        Device saved;
+        try {
+            saved = deviceRepository.save(device);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Another request updated the device between our read and our versioned UPDATE
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, DEVICE_MODIFIED_MESSAGE);
+        }
+        AvailabilityIndex.Cell after = AvailabilityIndex.cellOf(saved);
+        availabilityIndex.recordMove(before, after);
+        scanService.evictDevice(saved.getDeviceId());
+        changeEvents.publishDeviceChange(saved.getDeviceId(), before, after);
+        return ResponseEntity.ok().eTag(EntityTags.of(saved.getVersion())).body(saved);
     }
 
     // DELETE - Remove a device
     @DeleteMapping("/{id}")
+    @Audited(UserAction.DELETE)
     public ResponseEntity<Void> deleteDevice(@PathVariable("id") Long id) {
         Device device = deviceRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Device not found with ID " + id));
+        AvailabilityIndex.Cell before = AvailabilityIndex.cellOf(device);
         deviceRepository.delete(device);
+        availabilityIndex.recordMove(before, null);
+        scanService.evictDevice(id);
+        changeEvents.publishDeviceChange(id, before, null);
         return ResponseEntity.noContent().build();
     }
+
+    private ResponseEntity<ImportReport> importReport(ImportReport report) {
+        changeEvents.publishDevicesImported(report.created());
+        ActionLogInterceptor.recordSummary("created " + report.created() + " devices, " + report.failed() + " rows failed");
+        return ResponseEntity.status(report.created() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST).body(report);
+    }
+
+    // Imported devices are recorded as created by the caller
+    private Long currentUserId(Authentication authentication) {
+        return appUserRepository.findIdByEmail(authentication.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN, "Unknown user " + authentication.getName()));
+    }
+
+    private static List<DeviceSummaryDTO> toSummaryDTOs(List<DeviceRepository.DeviceSummary> rows) {
+        return rows.stream().map(DeviceSummaryDTO::new).collect(Collectors.toList());
+    }
+
+    // Listing shape: same field names as the Device entity JSON, but only ids and names of the
+    // related type, status, location and creator
+    public static class DeviceSummaryDTO {
+        private final Long deviceId;
+        private final String deviceName;
+        private final String serialNumber;
+        private final TypeRef type;
+        private final StatusRef status;
+        private final LocationRef location;
+        private final UserRef createdBy;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+        private final Long version;
+
+        public DeviceSummaryDTO(DeviceRepository.DeviceSummary row) {
+            this.deviceId = row.getDeviceId();
+            this.deviceName = row.getDeviceName();
+            this.serialNumber = row.getSerialNumber();
+            this.type = new TypeRef(row.getDeviceTypeId(), row.getDeviceTypeName());
+            this.status = new StatusRef(row.getDeviceStatusId(), row.getDeviceStatusName());
+            this.location = new LocationRef(row.getLocationId(), row.getLocationName());
+            this.createdBy = new UserRef(row.getCreatedByUserId());
+            this.createdAt = row.getCreatedAt();
+            this.updatedAt = row.getUpdatedAt();
+            this.version = row.getVersion();
+        }
+
+        public Long getDeviceId() { return deviceId; }
+        public String getDeviceName() { return deviceName; }
+        public String getSerialNumber() { return serialNumber; }
+        public TypeRef getType() { return type; }
+        public StatusRef getStatus() { return status; }
+        public LocationRef getLocation() { return location; }
+        public UserRef getCreatedBy() { return createdBy; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public LocalDateTime getUpdatedAt() { return updatedAt; }
+        public Long getVersion() { return version; }
+    }
+
+    // Same paging fields as GET /api/loans
+    public record DevicePageResponse(List<DeviceSummaryDTO> data, Long next_cursor, boolean has_more) {}
+
+    public record TypeRef(Integer deviceTypeId, String deviceTypeName) {}
+
+    public record StatusRef(Integer deviceStatusId, String statusName) {}
+
+    public record LocationRef(Integer locationId, String locationName) {}
+
+    public record UserRef(Long userId) {}
 }
@@ -0,0 +1,27 @@
+package com.example.prototypesetup.controller;
+
+// Strong ETags built from an entity's @Version, and the If-Match check used by PUT/PATCH endpoints
+final class EntityTags {
+
+    private EntityTags() {}
+
+    static String of(Long version) {
+        return "\"" + (version != null ? version : 0L) + "\"";
+    }
+
+    // No If-Match header means an unconditional write, so existing clients keep working
+    static boolean matches(String ifMatch, Long version) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return true;
+        }
+        String current = of(version);
+        for (String tag : ifMatch.split(",")) {
+            String trimmed = tag.trim();
+            // Weak tags (W/"...") never match: If-Match uses strong comparison
+            if (trimmed.equals("*") || trimmed.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.service.ChangeEventBroadcaster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventController {
+
+    @Autowired
+    private ChangeEventBroadcaster changeEvents;
+
+    // GET a Server-Sent Events stream of device status changes and loan checkouts / returns
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestParam(value = "locationId", required = false) Integer locationId) {
+        return changeEvents.subscribe(locationId);
+    }
+}
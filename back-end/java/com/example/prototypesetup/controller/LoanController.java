@@ -1,17 +1,60 @@
 package com.example.prototypesetup.controller;
 
+import com.example.prototypesetup.config.ActionLogInterceptor;
+import com.example.prototypesetup.config.Audited;
 import com.example.prototypesetup.entity.*;
 import com.example.prototypesetup.repository.*;
+import com.example.prototypesetup.service.ActionLogWriter.UserAction;
+import com.example.prototypesetup.service.ChangeEventBroadcaster;
+import com.example.prototypesetup.service.LoanCheckoutService;
+import com.example.prototypesetup.service.LoanLogWriter;
+import com.example.prototypesetup.service.LoanLogWriter.LoanAction;
+import com.example.prototypesetup.service.OpenLoanIndex;
+import com.example.prototypesetup.service.OpenLoanIndex.ConsistencyReport;
+import com.example.prototypesetup.service.OpenLoanIndex.OpenLoan;
+import com.example.prototypesetup.service.ReferenceDataService;
+import com.example.prototypesetup.service.UsageStatsService;
+import com.example.prototypesetup.service.UsageStatsService.LoanUsage;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
-
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/loans")
@@ -28,12 +71,37 @@ public class LoanController {
     private BinRepository binRepository;
     
     @Autowired
-    private LoanStatusRepository loanStatusRepository;
-    
+    private ReferenceDataService referenceDataService;
+
+    @Autowired
+    private LoanLogWriter loanLogWriter;
+
+    @Autowired
+    private LoanCheckoutService loanCheckoutService;
+
+    @Autowired
+    private UsageStatsService usageStatsService;
+
     @Autowired
-    private DeviceConditionRepository deviceConditionRepository;
+    private OpenLoanIndex openLoanIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ChangeEventBroadcaster changeEvents;
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final String LOAN_MODIFIED_MESSAGE = "Loan was modified by another request. Reload it and try again.";
+    private static final int EXPORT_BUFFER_BYTES = 64 * 1024;
 
     @PostMapping
+    @Audited(UserAction.CREATE)
     public ResponseEntity<?> createLoan(@RequestBody CreateLoanRequest request) {
         try {
             if (request.getBinId() == null || request.getLoanStatusId() == null ||
@@ -47,7 +115,7 @@ public class LoanController {
                 return ResponseEntity.status(400).body(new ErrorResponse("Invalid bin ID"));
             }
 
-            Optional<LoanStatus> statusOpt = loanStatusRepository.findById(request.getLoanStatusId());
+            Optional<LoanStatus> statusOpt = referenceDataService.findLoanStatus(request.getLoanStatusId());
             if (!statusOpt.isPresent()) {
                 return ResponseEntity.status(400).body(new ErrorResponse("Invalid status ID"));
             }
@@ -62,7 +130,7 @@ public class LoanController {
                 return ResponseEntity.status(400).body(new ErrorResponse("Invalid employee ID"));
             }
 
-            Optional<DeviceCondition> conditionOpt = deviceConditionRepository.findById(request.getLoanConditionId());
+            Optional<DeviceCondition> conditionOpt = referenceDataService.findDeviceCondition(request.getLoanConditionId());
             if (!conditionOpt.isPresent()) {
                 return ResponseEntity.status(400).body(new ErrorResponse("Invalid loan condition ID"));
             }
@@ -81,22 +149,270 @@ public class LoanController {
             loan.setCreatedAt(new Timestamp(System.currentTimeMillis()));
             loan.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
 
-            Loan savedLoan = loanRepository.save(loan);
+            // Reserves the bin's devices and inserts the loan in one transaction (409 if the bin is taken)
+            Loan savedLoan = loanCheckoutService.checkout(loan);
+            openLoanIndex.apply(savedLoan);
+            changeEvents.publishLoanCreated(savedLoan);
+            loanLogWriter.log(savedLoan.getLoanId(), LoanAction.CHECKOUT, "Loan created");
+            ActionLogInterceptor.recordCreatedId(savedLoan.getLoanId());
             LoanResponseDTO responseDTO = new LoanResponseDTO(savedLoan);
             return ResponseEntity.status(201).body(new SuccessResponse("Loan created successfully", responseDTO));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getReason()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(new ErrorResponse("An unexpected error has occurred."));
         }
     }
 
+    // Bulk checkout (e.g. a school hand-out day). All foreign keys are validated with one set-based query
+    // per table, invalid items are reported by index, and the valid loans are inserted in JDBC batches
+    // inside a single transaction.
+    @PostMapping("/batch")
+    @Audited(UserAction.CREATE)
+    @Transactional
+    public ResponseEntity<?> createLoans(@RequestBody List<CreateLoanRequest> requests) {
+        try {
+            if (requests == null || requests.isEmpty()) {
+                return ResponseEntity.status(400).body(new ErrorResponse("At least one loan is required"));
+            }
+            if (requests.size() > MAX_BATCH_SIZE) {
+                return ResponseEntity.status(400).body(new ErrorResponse("A batch may contain at most " + MAX_BATCH_SIZE + " loans"));
+            }
+
+            Set<Integer> binIds = new HashSet<>();
+            Set<Integer> statusIds = new HashSet<>();
+            Set<Long> userIds = new HashSet<>();
+            Set<Integer> conditionIds = new HashSet<>();
+            for (CreateLoanRequest request : requests) {
+                if (request == null) continue;
+                if (request.getBinId() != null) binIds.add(request.getBinId());
+                if (request.getLoanStatusId() != null) statusIds.add(request.getLoanStatusId());
+                if (request.getCitizenId() != null) userIds.add(request.getCitizenId());
+                if (request.getEmployeeId() != null) userIds.add(request.getEmployeeId());
+                if (request.getLoanConditionId() != null) conditionIds.add(request.getLoanConditionId());
+            }
+
+            Set<Integer> existingBins = new HashSet<>(binIds.isEmpty() ? List.of() : binRepository.findExistingIds(binIds));
+            Set<Long> existingUsers = new HashSet<>(userIds.isEmpty() ? List.of() : appUserRepository.findExistingIds(userIds));
+            Map<Integer, LoanStatus> statuses = new HashMap<>();
+            statusIds.forEach(id -> referenceDataService.findLoanStatus(id).ifPresent(status -> statuses.put(id, status)));
+            Map<Integer, DeviceCondition> conditions = new HashMap<>();
+            conditionIds.forEach(id -> referenceDataService.findDeviceCondition(id).ifPresent(condition -> conditions.put(id, condition)));
+
+            List<Loan> loans = new ArrayList<>();
+            List<Integer> loanIndexes = new ArrayList<>();
+            Set<Integer> requestedBins = new HashSet<>();
+            List<BatchItemError> errors = new ArrayList<>();
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (int i = 0; i < requests.size(); i++) {
+                CreateLoanRequest request = requests.get(i);
+                if (request == null || request.getBinId() == null || request.getLoanStatusId() == null ||
+                    request.getCitizenId() == null || request.getEmployeeId() == null ||
+                    request.getDueAt() == null || request.getLoanConditionId() == null) {
+                    errors.add(new BatchItemError(i, "Missing required fields"));
+                } else if (!existingBins.contains(request.getBinId())) {
+                    errors.add(new BatchItemError(i, "Invalid bin ID"));
+                } else if (!statuses.containsKey(request.getLoanStatusId())) {
+                    errors.add(new BatchItemError(i, "Invalid status ID"));
+                } else if (!existingUsers.contains(request.getCitizenId())) {
+                    errors.add(new BatchItemError(i, "Invalid citizen ID"));
+                } else if (!existingUsers.contains(request.getEmployeeId())) {
+                    errors.add(new BatchItemError(i, "Invalid employee ID"));
+                } else if (!conditions.containsKey(request.getLoanConditionId())) {
+                    errors.add(new BatchItemError(i, "Invalid loan condition ID"));
+                } else if (!requestedBins.add(request.getBinId())) {
+                    errors.add(new BatchItemError(i, "Bin appears more than once in the batch"));
+                } else {
+                    // Ids were validated above, so references are enough and no rows are loaded per loan
+                    Loan loan = new Loan();
+                    loan.setBin(binRepository.getReferenceById(request.getBinId()));
+                    loan.setLoanStatus(statuses.get(request.getLoanStatusId()));
+                    loan.setCitizen(appUserRepository.getReferenceById(request.getCitizenId()));
+                    loan.setEmployee(appUserRepository.getReferenceById(request.getEmployeeId()));
+                    loan.setLoanCondition(conditions.get(request.getLoanConditionId()));
+                    loan.setStartAt(now);
+                    loan.setDueAt(Timestamp.valueOf(request.getDueAt().atStartOfDay()));
+                    loan.setLoanConditionNotes(request.getLoanConditionNotes());
+                    loan.setNotes(request.getNotes());
+                    loan.setCreatedAt(now);
+                    loan.setUpdatedAt(now);
+                    loans.add(loan);
+                    loanIndexes.add(i);
+                }
+            }
+
+            // Same device reservation as a single checkout; loans whose bin is taken are reported, not inserted
+            Map<Integer, String> unavailableBins = loanCheckoutService.reserveBins(requestedBins);
+            if (!unavailableBins.isEmpty()) {
+                List<Loan> reservedLoans = new ArrayList<>();
+                for (int j = 0; j < loans.size(); j++) {
+                    String reason = unavailableBins.get(loans.get(j).getBinId());
+                    if (reason != null) {
+                        errors.add(new BatchItemError(loanIndexes.get(j), reason));
+                    } else {
+                        reservedLoans.add(loans.get(j));
+                    }
+                }
+                errors.sort(Comparator.comparingInt(BatchItemError::getIndex));
+                loans = reservedLoans;
+            }
+
+            List<Loan> savedLoans = loanRepository.saveAllAndFlush(loans);
+            List<Integer> createdIds = savedLoans.stream()
+                    .map(Loan::getLoanId)
+                    .collect(Collectors.toList());
+            createdIds.forEach(ActionLogInterceptor::recordCreatedId);
+            usageStatsService.recordCheckouts(savedLoans);
+            // Log only once the loans are committed, so loan_log rows never point at rolled-back loans
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    openLoanIndex.applyAll(savedLoans);
+                    savedLoans.forEach(changeEvents::publishLoanCreated);
+                    savedLoans.forEach(saved -> loanLogWriter.log(
+                            saved.getLoanId(), LoanAction.CHECKOUT, "Loan created (batch)"));
+                }
+            });
+            BatchLoanResult result = new BatchLoanResult(createdIds, errors);
+            if (createdIds.isEmpty()) {
+                return ResponseEntity.status(400).body(new SuccessResponse("No loans were created", result));
+            }
+            return ResponseEntity.status(201).body(new SuccessResponse(
+                    createdIds.size() + " loans created, " + errors.size() + " failed", result));
+        } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(500).body(new ErrorResponse("An unexpected error has occurred."));
+        }
+    }
+
     @GetMapping
-    public ResponseEntity<?> getAllLoans() {
+    public ResponseEntity<?> getAllLoans(
+            @RequestParam(value = "cursor", required = false) Integer cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "loanStatusId", required = false) Integer loanStatusId,
+            @RequestParam(value = "citizenId", required = false) Long citizenId,
+            @RequestParam(value = "employeeId", required = false) Long employeeId,
+            @RequestParam(value = "binId", required = false) Integer binId,
+            @RequestParam(value = "dueFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueFrom,
+            @RequestParam(value = "dueTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueTo) {
         try {
-            List<Loan> loans = loanRepository.findAll();
+            int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return ResponseEntity.status(400).body(new ErrorResponse("Page size must be between 1 and " + MAX_PAGE_SIZE));
+            }
+            if (dueFrom != null && dueTo != null && dueTo.isBefore(dueFrom)) {
+                return ResponseEntity.status(400).body(new ErrorResponse("dueTo must not be before dueFrom"));
+            }
+
+            // Fetch one extra row to know whether another page exists without running a COUNT query
+            List<LoanRepository.LoanView> loans = loanRepository.findPage(
+                    cursor, loanStatusId, citizenId, employeeId, binId,
+                    dueFrom != null ? Timestamp.valueOf(dueFrom.atStartOfDay()) : null,
+                    dueTo != null ? Timestamp.valueOf(dueTo.plusDays(1).atStartOfDay()) : null,
+                    pageSize + 1);
+
+            boolean hasMore = loans.size() > pageSize;
+            if (hasMore) {
+                loans = loans.subList(0, pageSize);
+            }
             List<LoanResponseDTO> responseDTOs = loans.stream()
                     .map(LoanResponseDTO::new)
                     .collect(Collectors.toList());
-            return ResponseEntity.ok(new SuccessResponse("Loans retrieved successfully", responseDTOs));
+            Integer nextCursor = hasMore ? responseDTOs.get(responseDTOs.size() - 1).getLoan_id() : null;
+            return ResponseEntity.ok(new LoanPageResponse("Loans retrieved successfully", responseDTOs, nextCursor, hasMore));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(new ErrorResponse("An unexpected error has occurred."));
+        }
+    }
+
+    // Full loan dump for auditors. Rows are streamed from the database straight into the response,
+    // so the download starts immediately and memory use does not grow with the number of loans.
+    // Declared as ResponseEntity<StreamingResponseBody>: Spring only streams the body when the generic type says so
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportLoans(
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            StreamingResponseBody error = outputStream ->
+                    outputStream.write(objectMapper.writeValueAsBytes(new ErrorResponse("Format must be csv or ndjson")));
+            return ResponseEntity.status(400).contentType(MediaType.APPLICATION_JSON).body(error);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, EXPORT_BUFFER_BYTES) : outputStream;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), EXPORT_BUFFER_BYTES);
+            if (csv) {
+                writer.write(String.join(",", EXPORT_CSV_COLUMNS));
+                writer.write("\n");
+                writer.flush();
+            }
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readOnly.executeWithoutResult(status -> {
+                try (Stream<LoanRepository.LoanView> rows = loanRepository.streamAll()) {
+                    rows.forEach(row -> {
+                        try {
+                            LoanResponseDTO dto = new LoanResponseDTO(row);
+                            writer.write(csv ? toCsvRow(dto) : objectMapper.writeValueAsString(dto));
+                            writer.write("\n");
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            });
+            writer.flush();
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        };
+
+        String extension = csv ? "csv" : "ndjson";
+        String contentType = gzip ? "application/gzip" : (csv ? "text/csv" : "application/x-ndjson");
+        String fileName = "loans." + extension + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    // Open loans of a bin or a citizen, answered from the in-memory OpenLoanIndex
+    @GetMapping("/open")
+    public ResponseEntity<?> getOpenLoans(
+            @RequestParam(value = "binId", required = false) Integer binId,
+            @RequestParam(value = "citizenId", required = false) Long citizenId) {
+        if ((binId == null) == (citizenId == null)) {
+            return ResponseEntity.status(400).body(new ErrorResponse("Exactly one of binId or citizenId is required"));
+        }
+        List<OpenLoan> loans = binId != null
+                ? openLoanIndex.findByBin(binId).map(List::of).orElse(List.of())
+                : openLoanIndex.findByCitizen(citizenId);
+        List<OpenLoanDTO> responseDTOs = loans.stream()
+                .map(OpenLoanDTO::new)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(new SuccessResponse("Open loans retrieved successfully", responseDTOs));
+    }
+
+    // Compares the open loan index with the loan table
+    @GetMapping("/open/consistency")
+    public ResponseEntity<?> checkOpenLoanIndex() {
+        try {
+            ConsistencyReport report = openLoanIndex.checkConsistency();
+            return ResponseEntity.ok(new SuccessResponse(
+                    report.isConsistent() ? "Open loan index is consistent" : "Open loan index differs from the loan table",
+                    new OpenLoanConsistencyDTO(report)));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(new ErrorResponse("An unexpected error has occurred."));
+        }
+    }
+
+    // Reloads the open loan index from the loan table, e.g. after loans were edited directly in the database
+    @PostMapping("/open/rebuild")
+    public ResponseEntity<?> rebuildOpenLoanIndex() {
+        try {
+            int loans = openLoanIndex.rebuild();
+            return ResponseEntity.ok(new SuccessResponse("Open loan index rebuilt with " + loans + " loans"));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(new ErrorResponse("An unexpected error has occurred."));
         }
@@ -105,26 +421,33 @@ public class LoanController {
     @GetMapping("/{loan_id}")
     public ResponseEntity<?> getLoanById(@PathVariable("loan_id") Integer loan_id) {
         try {
-            Optional<Loan> loans = loanRepository.findById(loan_id);
-            if (!loans.isPresent()) {
+            Optional<LoanRepository.LoanView> loanView = loanRepository.findViewById(loan_id);
+            if (!loanView.isPresent()) {
                 return ResponseEntity.status(404).body(new ErrorResponse("Loan not found"));
             }
-            Loan loan = loans.get();
-            
-            LoanResponseDTO responseDTO = new LoanResponseDTO(loan);
-            return ResponseEntity.ok(new SuccessResponse("Loan retrieved successfully", responseDTO));
+
+            LoanResponseDTO responseDTO = new LoanResponseDTO(loanView.get());
+            return ResponseEntity.ok()
+                    .eTag(EntityTags.of(responseDTO.getVersion()))
+                    .body(new SuccessResponse("Loan retrieved successfully", responseDTO));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(new ErrorResponse("An unexpected error has occurred."));
         }
     }
 
     @PutMapping("/{loan_id}")
-    public ResponseEntity<?> replaceLoan(@PathVariable("loan_id") Integer loan_id, @RequestBody ReplaceLoanRequest request) {
+    @Audited(UserAction.UPDATE)
+    public ResponseEntity<?> replaceLoan(@PathVariable("loan_id") Integer loan_id,
+                                         @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                         @RequestBody ReplaceLoanRequest request) {
         try {
             Optional<Loan> loanOpt = loanRepository.findById(loan_id);
             if (!loanOpt.isPresent()) {
                 return ResponseEntity.status(404).body(new ErrorResponse("Loan not found"));
             }
+            if (!EntityTags.matches(ifMatch, loanOpt.get().getVersion())) {
+                return ResponseEntity.status(412).body(new ErrorResponse(LOAN_MODIFIED_MESSAGE));
+            }
 
             if (request.getBinId() == null || request.getLoanStatusId() == null ||
                 request.getCitizenId() == null || request.getEmployeeId() == null ||
@@ -138,7 +461,7 @@ public class LoanController {
                 return ResponseEntity.status(400).body(new ErrorResponse("Invalid bin ID"));
             }
 
-            Optional<LoanStatus> statusOpt = loanStatusRepository.findById(request.getLoanStatusId());
+            Optional<LoanStatus> statusOpt = referenceDataService.findLoanStatus(request.getLoanStatusId());
             if (!statusOpt.isPresent()) {
                 return ResponseEntity.status(400).body(new ErrorResponse("Invalid status ID"));
             }
@@ -153,13 +476,16 @@ public class LoanController {
                 return ResponseEntity.status(400).body(new ErrorResponse("Invalid employee ID"));
             }
 
-            Optional<DeviceCondition> loanConditionOpt = deviceConditionRepository.findById(request.getLoanConditionId());
+            Optional<DeviceCondition> loanConditionOpt = referenceDataService.findDeviceCondition(request.getLoanConditionId());
             if (!loanConditionOpt.isPresent()) {
                 return ResponseEntity.status(400).body(new ErrorResponse("Invalid loan condition ID"));
             }
 
             Loan loan = loanOpt.get();
-            
+            Integer previousStatusId = loan.getLoanStatusId();
+            boolean wasReturned = loan.getReturnedAt() != null;
+            LoanUsage before = LoanUsage.of(loan);
+
             loan.setBin(binOpt.get());
             loan.setLoanStatus(statusOpt.get());
             loan.setCitizen(citizenOpt.get());
@@ -171,7 +497,7 @@ public class LoanController {
             loan.setLoanConditionNotes(request.getLoanConditionNotes());
             
             if (request.getReturnConditionId() != null) {
-                Optional<DeviceCondition> returnConditionOpt = deviceConditionRepository.findById(request.getReturnConditionId());
+                Optional<DeviceCondition> returnConditionOpt = referenceDataService.findDeviceCondition(request.getReturnConditionId());
                 if (returnConditionOpt.isPresent()) {
                     loan.setReturnCondition(returnConditionOpt.get());
                 } else {
@@ -188,26 +514,46 @@ public class LoanController {
             loan.setNotes(request.getNotes());
             loan.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
 
-            Loan savedLoan = loanRepository.save(loan);
+            // A return, reopen or bin change also releases / reserves the bin's devices in the same transaction
+            Loan savedLoan = loanCheckoutService.update(loan, before);
+            openLoanIndex.apply(savedLoan);
+            publishBinChanges(before, savedLoan);
+            logLoanChanges(savedLoan, previousStatusId, wasReturned);
             LoanResponseDTO responseDTO = new LoanResponseDTO(savedLoan);
-            return ResponseEntity.ok(new SuccessResponse("Loan replaced successfully", responseDTO));
+            return ResponseEntity.ok()
+                    .eTag(EntityTags.of(responseDTO.getVersion()))
+                    .body(new SuccessResponse("Loan replaced successfully", responseDTO));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Another request updated the loan between our read and our versioned UPDATE
+            return ResponseEntity.status(412).body(new ErrorResponse(LOAN_MODIFIED_MESSAGE));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getReason()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(new ErrorResponse("An unexpected error has occurred."));
         }
     }
 
     @PatchMapping("/{loan_id}")
-    public ResponseEntity<?> updateLoan(@PathVariable("loan_id") Integer loan_id, @RequestBody UpdateLoanRequest request) {
+    @Audited(UserAction.UPDATE)
+    public ResponseEntity<?> updateLoan(@PathVariable("loan_id") Integer loan_id,
+                                        @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                        @RequestBody UpdateLoanRequest request) {
         try {
             Optional<Loan> loanOpt = loanRepository.findById(loan_id);
             if (!loanOpt.isPresent()) {
                 return ResponseEntity.status(404).body(new ErrorResponse("Loan not found"));
             }
+            if (!EntityTags.matches(ifMatch, loanOpt.get().getVersion())) {
+                return ResponseEntity.status(412).body(new ErrorResponse(LOAN_MODIFIED_MESSAGE));
+            }
 
             Loan loan = loanOpt.get();
-            
+            Integer previousStatusId = loan.getLoanStatusId();
+            boolean wasReturned = loan.getReturnedAt() != null;
+            LoanUsage before = LoanUsage.of(loan);
+
             if (request.getLoanStatusId() != null) {
-                Optional<LoanStatus> statusOpt = loanStatusRepository.findById(request.getLoanStatusId());
+                Optional<LoanStatus> statusOpt = referenceDataService.findLoanStatus(request.getLoanStatusId());
                 if (statusOpt.isPresent()) {
                     loan.setLoanStatus(statusOpt.get());
                 } else {
@@ -220,7 +566,7 @@ public class LoanController {
             }
             
             if (request.getReturnCondition() != null) {
-                Optional<DeviceCondition> returnConditionOpt = deviceConditionRepository.findById(request.getReturnCondition());
+                Optional<DeviceCondition> returnConditionOpt = referenceDataService.findDeviceCondition(request.getReturnCondition());
                 if (returnConditionOpt.isPresent()) {
                     loan.setReturnCondition(returnConditionOpt.get());
                 } else {
@@ -236,27 +582,97 @@ public class LoanController {
             
             loan.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
 
-            Loan savedLoan = loanRepository.save(loan);
+            // A return, reopen or bin change also releases / reserves the bin's devices in the same transaction
+            Loan savedLoan = loanCheckoutService.update(loan, before);
+            openLoanIndex.apply(savedLoan);
+            publishBinChanges(before, savedLoan);
+            logLoanChanges(savedLoan, previousStatusId, wasReturned);
             LoanResponseDTO responseDTO = new LoanResponseDTO(savedLoan);
-            return ResponseEntity.ok(new SuccessResponse("Loan updated successfully", responseDTO));
+            return ResponseEntity.ok()
+                    .eTag(EntityTags.of(responseDTO.getVersion()))
+                    .body(new SuccessResponse("Loan updated successfully", responseDTO));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Another request updated the loan between our read and our versioned UPDATE
+            return ResponseEntity.status(412).body(new ErrorResponse(LOAN_MODIFIED_MESSAGE));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getReason()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(new ErrorResponse("An unexpected error has occurred."));
         }
     }
 
     @DeleteMapping("/{loan_id}")
+    @Audited(UserAction.DELETE)
     public ResponseEntity<?> deleteLoan(@PathVariable("loan_id") Integer loan_id) {
         try {
-            if (!loanRepository.existsById(loan_id)) {
+            Optional<Loan> loanOpt = loanRepository.findById(loan_id);
+            if (!loanOpt.isPresent()) {
                 return ResponseEntity.status(404).body(new ErrorResponse("Loan not found"));
             }
-            loanRepository.deleteById(loan_id);
+            Loan loan = loanOpt.get();
+            // Deleting an open loan also hands the bin's devices back (Loaned -> Available) in the same transaction
+            loanCheckoutService.delete(loan);
+            openLoanIndex.remove(loan_id);
+            if (loan.getReturnedAt() == null) changeEvents.publishLoanReturned(loan);
             return ResponseEntity.ok(new SuccessResponse("Loan deleted successfully"));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(new ErrorResponse("An unexpected error has occurred."));
         }
     }
 
+    // Events for the bins a PUT or PATCH released (return, move away) or reserved (reopen, move onto)
+    private void publishBinChanges(LoanUsage before, Loan saved) {
+        boolean sameBin = Objects.equals(before.binId(), saved.getBinId());
+        boolean holdsBin = saved.getReturnedAt() == null;
+        if (before.holdsBin() && !(holdsBin && sameBin)) {
+            changeEvents.publishLoanReturned(saved.getLoanId(), before.binId());
+        }
+        if (holdsBin && !(before.holdsBin() && sameBin)) {
+            changeEvents.publishLoanCreated(saved);
+        }
+    }
+
+    // Queues loan_log entries for a return and/or a status change made by a PUT or PATCH
+    private void logLoanChanges(Loan loan, Integer previousStatusId, boolean wasReturned) {
+        if (!wasReturned && loan.getReturnedAt() != null) {
+            loanLogWriter.log(loan.getLoanId(), LoanAction.RETURN, "Loan returned");
+        }
+        if (!Objects.equals(previousStatusId, loan.getLoanStatusId())) {
+            loanLogWriter.log(loan.getLoanId(), LoanAction.STATUS_CHANGE,
+                    "Loan status changed from " + previousStatusId + " to " + loan.getLoanStatusId());
+        }
+    }
+
+    private static final String[] EXPORT_CSV_COLUMNS = {
+            "loan_id", "bin_id", "loan_status_id", "loan_status_name", "citizen_id", "employee_id",
+            "start_at", "due_at", "returned_at", "loan_condition_id", "loan_condition_name", "loan_condition_notes",
+            "return_condition_id", "return_condition_name", "return_condition_notes", "damage_fee",
+            "all_accessories_returned", "missing_accessories", "notes", "created_at", "updated_at"
+    };
+
+    private static String toCsvRow(LoanResponseDTO loan) {
+        Object[] values = {
+                loan.getLoan_id(), loan.getBin_id(), loan.getLoan_status_id(), loan.getLoan_status_name(),
+                loan.getCitizen_id(), loan.getEmployee_id(), loan.getStart_at(), loan.getDue_at(), loan.getReturned_at(),
+                loan.getLoan_condition_id(), loan.getLoan_condition_name(), loan.getLoan_condition_notes(),
+                loan.getReturn_condition_id(), loan.getReturn_condition_name(), loan.getReturn_condition_notes(),
+                loan.getDamage_fee(), loan.getAll_accessories_returned(), loan.getMissing_accessories(), loan.getNotes(),
+                loan.getCreated_at(), loan.getUpdated_at()
+        };
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) row.append(',');
+            if (values[i] == null) continue;
+            String value = values[i].toString();
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                row.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                row.append(value);
+            }
+        }
+        return row.toString();
+    }
+
     public static class CreateLoanRequest {
         private Integer binId;
         private Integer loanStatusId;
@@ -387,6 +803,7 @@ public class LoanController {
         private String notes;
         private String created_at;
         private String updated_at;
+        private Long version;
 
         public LoanResponseDTO(Loan loan) {
             this.loan_id = loan.getLoanId();
@@ -410,6 +827,32 @@ public class LoanController {
             this.notes = loan.getNotes();
             this.created_at = loan.getCreatedAt() != null ? loan.getCreatedAt().toString() : null;
             this.updated_at = loan.getUpdatedAt() != null ? loan.getUpdatedAt().toString() : null;
+            this.version = loan.getVersion();
+        }
+
+        public LoanResponseDTO(LoanRepository.LoanView loan) {
+            this.loan_id = loan.getLoanId();
+            this.bin_id = loan.getBinId();
+            this.loan_status_id = loan.getLoanStatusId();
+            this.loan_status_name = loan.getLoanStatusName();
+            this.citizen_id = loan.getCitizenId();
+            this.employee_id = loan.getEmployeeId();
+            this.start_at = loan.getStartAt() != null ? loan.getStartAt().toString() : null;
+            this.due_at = loan.getDueAt() != null ? loan.getDueAt().toString() : null;
+            this.returned_at = loan.getReturnedAt() != null ? loan.getReturnedAt().toString() : null;
+            this.loan_condition_id = loan.getLoanConditionId();
+            this.loan_condition_name = loan.getLoanConditionName();
+            this.loan_condition_notes = loan.getLoanConditionNotes();
+            this.return_condition_id = loan.getReturnConditionId();
+            this.return_condition_name = loan.getReturnConditionName();
+            this.return_condition_notes = loan.getReturnConditionNotes();
+            this.damage_fee = loan.getDamageFee();
+            this.all_accessories_returned = loan.getAllAccessoriesReturned();
+            this.missing_accessories = loan.getMissingAccessories();
+            this.notes = loan.getNotes();
+            this.created_at = loan.getCreatedAt() != null ? loan.getCreatedAt().toString() : null;
+            this.updated_at = loan.getUpdatedAt() != null ? loan.getUpdatedAt().toString() : null;
+            this.version = loan.getVersion();
         }
 
         public Integer getLoan_id() { return loan_id; }
@@ -433,6 +876,74 @@ public class LoanController {
         public String getNotes() { return notes; }
         public String getCreated_at() { return created_at; }
         public String getUpdated_at() { return updated_at; }
+        public Long getVersion() { return version; }
+    }
+
+    public static class BatchItemError {
+        private final int index;
+        private final String error;
+
+        public BatchItemError(int index, String error) {
+            this.index = index;
+            this.error = error;
+        }
+
+        public int getIndex() { return index; }
+        public String getError() { return error; }
+    }
+
+    public static class BatchLoanResult {
+        private final List<Integer> created_loan_ids;
+        private final List<BatchItemError> errors;
+
+        public BatchLoanResult(List<Integer> created_loan_ids, List<BatchItemError> errors) {
+            this.created_loan_ids = created_loan_ids;
+            this.errors = errors;
+        }
+
+        public List<Integer> getCreated_loan_ids() { return created_loan_ids; }
+        public List<BatchItemError> getErrors() { return errors; }
+    }
+
+    public static class OpenLoanDTO {
+        private final Integer loan_id;
+        private final Integer bin_id;
+        private final Long citizen_id;
+
+        public OpenLoanDTO(OpenLoan loan) {
+            this.loan_id = loan.loanId();
+            this.bin_id = loan.binId();
+            this.citizen_id = loan.citizenId();
+        }
+
+        public Integer getLoan_id() { return loan_id; }
+        public Integer getBin_id() { return bin_id; }
+        public Long getCitizen_id() { return citizen_id; }
+    }
+
+    public static class OpenLoanConsistencyDTO {
+        private final boolean consistent;
+        private final int indexed_loans;
+        private final int open_loans_in_database;
+        private final List<Integer> missing_from_index;
+        private final List<Integer> not_open_in_database;
+        private final List<Integer> mismatched;
+
+        public OpenLoanConsistencyDTO(ConsistencyReport report) {
+            this.consistent = report.isConsistent();
+            this.indexed_loans = report.indexedLoans();
+            this.open_loans_in_database = report.openLoansInDatabase();
+            this.missing_from_index = report.missingFromIndex();
+            this.not_open_in_database = report.notOpenInDatabase();
+            this.mismatched = report.mismatched();
+        }
+
+        public boolean getConsistent() { return consistent; }
+        public int getIndexed_loans() { return indexed_loans; }
+        public int getOpen_loans_in_database() { return open_loans_in_database; }
+        public List<Integer> getMissing_from_index() { return missing_from_index; }
+        public List<Integer> getNot_open_in_database() { return not_open_in_database; }
+        public List<Integer> getMismatched() { return mismatched; }
     }
 
     public static class ErrorResponse {
@@ -458,4 +969,18 @@ public class LoanController {
         public String getMessage() { return message; }
         public Object getData() { return data; }
     }
+
+    public static class LoanPageResponse extends SuccessResponse {
+        private final Integer next_cursor;
+        private final boolean has_more;
+
+        public LoanPageResponse(String message, List<LoanResponseDTO> data, Integer next_cursor, boolean has_more) {
+            super(message, data);
+            this.next_cursor = next_cursor;
+            this.has_more = has_more;
+        }
+
+        public Integer getNext_cursor() { return next_cursor; }
+        public boolean getHas_more() { return has_more; }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.controller.BinController.BinDTO;
+import com.example.prototypesetup.controller.LoanController.OpenLoanDTO;
+import com.example.prototypesetup.repository.DeviceRepository.DeviceSummary;
+import com.example.prototypesetup.service.OpenLoanIndex;
+import com.example.prototypesetup.service.ScanService;
+import com.example.prototypesetup.service.ScanService.ScanResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/scan")
+public class ScanController {
+
+    @Autowired
+    private ScanService scanService;
+
+    @Autowired
+    private OpenLoanIndex openLoanIndex;
+
+    // GET the device (by serial number) or bin (by asset tag) behind a scanned code, with its open loan
+    @GetMapping("/{code}")
+    public ResponseEntity<ScanResultDTO> scan(@PathVariable("code") String code) {
+        if (code.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Code must not be empty");
+        }
+        ScanResult result = scanService.resolve(code)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No device or bin found for code " + code));
+
+        if (result.device() != null) {
+            Integer binId = result.device().binId();
+            return ResponseEntity.ok(new ScanResultDTO("device",
+                    new ScannedDeviceDTO(result.device().device(), binId), null, openLoan(binId)));
+        }
+        Integer binId = result.bin().getBinId();
+        return ResponseEntity.ok(new ScanResultDTO("bin", null,
+                new BinDTO(result.bin(), openLoanIndex.isBinOut(binId)), openLoan(binId)));
+    }
+
+    private OpenLoanDTO openLoan(Integer binId) {
+        if (binId == null) return null;
+        return openLoanIndex.findByBin(binId).map(OpenLoanDTO::new).orElse(null);
+    }
+
+    public static class ScanResultDTO {
+        private final String type;
+        private final ScannedDeviceDTO device;
+        private final BinDTO bin;
+        private final OpenLoanDTO open_loan;
+
+        public ScanResultDTO(String type, ScannedDeviceDTO device, BinDTO bin, OpenLoanDTO open_loan) {
+            this.type = type;
+            this.device = device;
+            this.bin = bin;
+            this.open_loan = open_loan;
+        }
+
+        public String getType() { return type; }
+        public ScannedDeviceDTO getDevice() { return device; }
+        public BinDTO getBin() { return bin; }
+        public OpenLoanDTO getOpen_loan() { return open_loan; }
+    }
+
+    public static class ScannedDeviceDTO {
+        private final Long device_id;
+        private final String device_name;
+        private final String serial_number;
+        private final String device_type_name;
+        private final String status_name;
+        private final Integer location_id;
+        private final String location_name;
+        private final Integer bin_id;
+
+        public ScannedDeviceDTO(DeviceSummary device, Integer bin_id) {
+            this.device_id = device.getDeviceId();
+            this.device_name = device.getDeviceName();
+            this.serial_number = device.getSerialNumber();
+            this.device_type_name = device.getDeviceTypeName();
+            this.status_name = device.getDeviceStatusName();
+            this.location_id = device.getLocationId();
+            this.location_name = device.getLocationName();
+            this.bin_id = bin_id;
+        }
+
+        public Long getDevice_id() { return device_id; }
+        public String getDevice_name() { return device_name; }
+        public String getSerial_number() { return serial_number; }
+        public String getDevice_type_name() { return device_type_name; }
+        public String getStatus_name() { return status_name; }
+        public Integer getLocation_id() { return location_id; }
+        public String getLocation_name() { return location_name; }
+        public Integer getBin_id() { return bin_id; }
+    }
+}
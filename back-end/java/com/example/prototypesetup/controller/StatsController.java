@@ -0,0 +1,120 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.entity.DeviceType;
+import com.example.prototypesetup.entity.LoanUsageRollup;
+import com.example.prototypesetup.service.ReferenceDataService;
+import com.example.prototypesetup.service.UsageStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private static final int MAX_MONTHS = 60;
+
+    @Autowired
+    private UsageStatsService usageStatsService;
+
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
+    // GET monthly device usage, answered from loan_usage_rollup (one row per month/location/device type)
+    @GetMapping("/usage")
+    public ResponseEntity<List<MonthlyUsageDTO>> getUsage(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            @RequestParam(value = "locationId", required = false) Integer locationId) {
+        YearMonth toMonth = to != null ? to : YearMonth.now();
+        YearMonth fromMonth = from != null ? from : toMonth.minusMonths(11);
+        if (fromMonth.isAfter(toMonth)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        if (fromMonth.plusMonths(MAX_MONTHS).isBefore(toMonth)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_MONTHS + " months can be requested");
+        }
+
+        // Buckets arrive ordered by month, so months keep their order; several locations fold into one total
+        Map<YearMonth, MonthlyUsageDTO> months = new LinkedHashMap<>();
+        for (LoanUsageRollup bucket : usageStatsService.findBuckets(fromMonth, toMonth, locationId)) {
+            YearMonth month = YearMonth.from(bucket.getUsageMonth());
+            months.computeIfAbsent(month, m -> new MonthlyUsageDTO(m.toString()))
+                    .add(bucket.getDeviceTypeId(), deviceTypeName(bucket.getDeviceTypeId()),
+                         bucket.getDevicesCheckedOut(), bucket.getDevicesReturned());
+        }
+        return ResponseEntity.ok(new ArrayList<>(months.values()));
+    }
+
+    // POST recompute every bucket from the loan table (repairs drift)
+    @PostMapping("/usage/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildUsage() {
+        int buckets = usageStatsService.rebuild();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("message", "Usage statistics rebuilt");
+        result.put("buckets", buckets);
+        return ResponseEntity.ok(result);
+    }
+
+    // Validation errors use the documented {"error": "<message>"} body instead of Spring's default error page
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, String>> handleStatusException(ResponseStatusException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", String.valueOf(e.getReason())));
+    }
+
+    private String deviceTypeName(Integer deviceTypeId) {
+        return referenceDataService.findDeviceType(deviceTypeId)
+                .map(DeviceType::getDeviceTypeName)
+                .orElse(null);
+    }
+
+    public static class MonthlyUsageDTO {
+        private final String month;
+        private int devices_checked_out;
+        private int devices_returned;
+        private final Map<Integer, DeviceTypeUsageDTO> deviceTypes = new LinkedHashMap<>();
+
+        public MonthlyUsageDTO(String month) {
+            this.month = month;
+        }
+
+        void add(Integer deviceTypeId, String deviceTypeName, int checkedOut, int returned) {
+            devices_checked_out += checkedOut;
+            devices_returned += returned;
+            DeviceTypeUsageDTO type = deviceTypes.computeIfAbsent(deviceTypeId, id -> new DeviceTypeUsageDTO(id, deviceTypeName));
+            type.devices_checked_out += checkedOut;
+            type.devices_returned += returned;
+        }
+
+        public String getMonth() { return month; }
+        public int getDevices_checked_out() { return devices_checked_out; }
+        public int getDevices_returned() { return devices_returned; }
+        public List<DeviceTypeUsageDTO> getDevice_types() { return new ArrayList<>(deviceTypes.values()); }
+    }
+
+    public static class DeviceTypeUsageDTO {
+        private final Integer device_type_id;
+        private final String device_type_name;
+        private int devices_checked_out;
+        private int devices_returned;
+
+        public DeviceTypeUsageDTO(Integer device_type_id, String device_type_name) {
+            this.device_type_id = device_type_id;
+            this.device_type_name = device_type_name;
+        }
+
+        public Integer getDevice_type_id() { return device_type_id; }
+        public String getDevice_type_name() { return device_type_name; }
+        public int getDevices_checked_out() { return devices_checked_out; }
+        public int getDevices_returned() { return devices_returned; }
+    }
+}
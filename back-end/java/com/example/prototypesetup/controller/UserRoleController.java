@@ -2,6 +2,7 @@ package com.example.prototypesetup.controller;
 
 import com.example.prototypesetup.entity.UserRole;
 import com.example.prototypesetup.repository.UserRoleRepository;
+import com.example.prototypesetup.service.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +17,9 @@ public class UserRoleController {
     @Autowired
     private UserRoleRepository roleRepository;
 
+    @Autowired
+    private ReferenceDataService referenceDataService;
+
     // GET all roles
     @GetMapping
     public List<UserRole> getAllRoles() {
@@ -39,6 +43,7 @@ public ResponseEntity<UserRole> getRoleById(@PathVariable("id") Long id) {
         }
 
         UserRole savedRole = roleRepository.save(role);
+        referenceDataService.evictUserRole(savedRole.getRoleId());
         return ResponseEntity.status(HttpStatus.CREATED).body(savedRole);
     }
 
@@ -52,6 +57,7 @@ public ResponseEntity<UserRole> updateRole(@PathVariable("id") Long id,
         role.setActive(updatedRole.isActive());
 
         UserRole savedRole = roleRepository.save(role);
+        referenceDataService.evictUserRole(id);
         return ResponseEntity.ok(savedRole);
     }).orElseThrow(() ->
             new ResponseStatusException(HttpStatus.NOT_FOUND, "Role not found with ID " + id));
@@ -66,6 +72,7 @@ public ResponseEntity<Void> deleteRole(@PathVariable("id") Long id) {
     }
 
     roleRepository.deleteById(id);
+    referenceDataService.evictUserRole(id);
     return ResponseEntity.noContent().build();
 }
 
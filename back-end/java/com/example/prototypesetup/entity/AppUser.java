@@ -73,6 +73,11 @@ public class AppUser {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // FALSE = deactivated account (employee on leave or gone, suspension): login is refused
+    @Builder.Default
+    @Column(name = "is_active", nullable = false)
+    private boolean active = true;
+
     // Relation with UserLocationAccess
     @OneToMany(mappedBy = "appUser", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<UserLocationAccess> locationAccess = new HashSet<>();
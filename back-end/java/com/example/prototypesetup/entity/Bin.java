@@ -1,12 +1,16 @@
 package com.example.prototypesetup.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "bin")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Bin {
-    // !!! TO DO : Add foreign keys !!!
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -19,11 +23,26 @@ public class Bin {
     @Column(name = "bin_contents", length = 255)
     private String binContents;
 
-    @Column(name = "created_by_user_id", nullable = false)
-    private Long createdByUserId;
-
-    @Column(name = "location_id", nullable = false)
-    private Integer locationId;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "created_by_user_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+    private AppUser createdBy;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "location_id", nullable = false)
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+    private Location location;
+
+    // bin_device: a device sits in at most one bin (uk_device_id). Load it with a join fetch
+    // (BinRepository) rather than touching the collection bin by bin. A List, not a Set, because
+    // Device's Lombok hashCode would initialize its lazy references.
+    @OneToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "bin_device",
+            joinColumns = @JoinColumn(name = "bin_id"),
+            inverseJoinColumns = @JoinColumn(name = "device_id", unique = true))
+    @OrderBy("deviceId ASC")
+    @JsonIgnore
+    private List<Device> devices = new ArrayList<>();
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private Timestamp createdAt;
@@ -43,15 +62,23 @@ public class Bin {
     public String getBinContents() { return binContents; }
     public void setBinContents(String binContents) { this.binContents = binContents; }
 
-    public Long getCreatedByUserId() { return createdByUserId; }
-    public void setCreatedByUserId(Long createdByUserId) { this.createdByUserId = createdByUserId; }
+    public AppUser getCreatedBy() { return createdBy; }
+    public void setCreatedBy(AppUser createdBy) { this.createdBy = createdBy; }
+
+    public Location getLocation() { return location; }
+    public void setLocation(Location location) { this.location = location; }
 
-    public Integer getLocationId() { return locationId; }
-    public void setLocationId(Integer locationId) { this.locationId = locationId; }
+    public List<Device> getDevices() { return devices; }
+    public void setDevices(List<Device> devices) { this.devices = devices; }
 
     public Timestamp getCreatedAt() { return createdAt; }
     public void setCreatedAt(Timestamp createdAt) { this.createdAt = createdAt; }
 
     public Timestamp getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Timestamp updatedAt) { this.updatedAt = updatedAt; }
+
+    // Ids of the lazy references; reading them does not load the Location / AppUser
+    public Long getCreatedByUserId() { return createdBy != null ? createdBy.getUserId() : null; }
+
+    public Integer getLocationId() { return location != null ? location.getLocationId() : null; }
 }
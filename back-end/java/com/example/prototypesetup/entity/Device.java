@@ -55,6 +55,11 @@ public class Device {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Optimistic lock: every UPDATE is issued as "... WHERE device_id = ? AND version = ?"
+    @Version
+    @Column(name = "version", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
     @Override
     public String toString() {
         return "Device{" +
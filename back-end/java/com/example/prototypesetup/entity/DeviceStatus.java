@@ -18,6 +18,6 @@ public class DeviceStatus {
     @Column(name = "device_status_id")
     private Integer deviceStatusId;
 
-    @Column(name = "status_name", nullable = false, unique = true, length = 100)
+    @Column(name = "device_status_name", nullable = false, unique = true, length = 50)
     private String statusName;
 }
@@ -7,8 +7,14 @@ import java.sql.Timestamp;
 @Entity
 @Table(name = "loan")
 public class Loan {
+    // Pooled table generator instead of IDENTITY so Hibernate can assign ids up front and
+    // group loan inserts into JDBC batches (see hibernate.jdbc.batch_size). One id_generator
+    // round trip reserves a block of allocationSize ids.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "loan_id_generator")
+    @TableGenerator(name = "loan_id_generator", table = "id_generator",
+            pkColumnName = "generator_name", valueColumnName = "next_value",
+            pkColumnValue = "loan", allocationSize = 50)
     @Column(name = "loan_id")
     private Integer loanId;
 
@@ -69,6 +75,11 @@ public class Loan {
     @Column(name = "updated_at", nullable = false)
     private Timestamp updatedAt;
 
+    // Optimistic lock: every UPDATE is issued as "... WHERE loan_id = ? AND version = ?"
+    @Version
+    @Column(name = "version", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
     public Loan() {}
 
     public Integer getLoanId() { return loanId; }
@@ -107,6 +118,9 @@ public class Loan {
     public Timestamp getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Timestamp updatedAt) { this.updatedAt = updatedAt; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public Bin getBin() { return bin; }
     public void setBin(Bin bin) { this.bin = bin; }
 
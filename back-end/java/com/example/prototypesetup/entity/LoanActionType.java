@@ -0,0 +1,26 @@
+package com.example.prototypesetup.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "loan_action_type")
+public class LoanActionType {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "loan_action_type_id")
+    private Integer loanActionTypeId;
+
+    @Column(name = "loan_action_name", nullable = false, unique = true, length = 50)
+    private String loanActionName;
+
+    @Column(name = "is_active", nullable = false)
+    private boolean active;
+}
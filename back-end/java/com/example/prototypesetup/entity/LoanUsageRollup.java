@@ -0,0 +1,33 @@
+package com.example.prototypesetup.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDate;
+
+// One row per (month, location, device type). Written only through the upserts in LoanUsageRollupRepository.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(LoanUsageRollupId.class)
+@Table(name = "loan_usage_rollup")
+public class LoanUsageRollup {
+
+    @Id
+    @Column(name = "usage_month")
+    private LocalDate usageMonth;
+
+    @Id
+    @Column(name = "location_id")
+    private Integer locationId;
+
+    @Id
+    @Column(name = "device_type_id")
+    private Integer deviceTypeId;
+
+    @Column(name = "devices_checked_out", nullable = false)
+    private Integer devicesCheckedOut;
+
+    @Column(name = "devices_returned", nullable = false)
+    private Integer devicesReturned;
+}
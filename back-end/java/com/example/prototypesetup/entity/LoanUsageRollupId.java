@@ -0,0 +1,37 @@
+package com.example.prototypesetup.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public class LoanUsageRollupId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private LocalDate usageMonth;  // Must match entity field name
+    private Integer locationId;    // Must match entity field name
+    private Integer deviceTypeId;  // Must match entity field name
+
+    public LoanUsageRollupId() {}
+
+    public LoanUsageRollupId(LocalDate usageMonth, Integer locationId, Integer deviceTypeId) {
+        this.usageMonth = usageMonth;
+        this.locationId = locationId;
+        this.deviceTypeId = deviceTypeId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LoanUsageRollupId)) return false;
+        LoanUsageRollupId that = (LoanUsageRollupId) o;
+        return Objects.equals(usageMonth, that.usageMonth) &&
+               Objects.equals(locationId, that.locationId) &&
+               Objects.equals(deviceTypeId, that.deviceTypeId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(usageMonth, locationId, deviceTypeId);
+    }
+}
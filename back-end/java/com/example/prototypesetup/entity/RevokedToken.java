@@ -0,0 +1,24 @@
+package com.example.prototypesetup.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+
+// A JWT id revoked before its token expired. Written and pruned by TokenRevocationService.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "revoked_token")
+public class RevokedToken {
+
+    @Id
+    @Column(name = "jti", length = 36)
+    private String jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+}
@@ -0,0 +1,23 @@
+package com.example.prototypesetup.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "transaction_status")
+public class TransactionStatus {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "transaction_status_id")
+    private Integer transactionStatusId;
+
+    @Column(name = "transaction_status_name", nullable = false, unique = true, length = 50)
+    private String transactionStatusName;
+}
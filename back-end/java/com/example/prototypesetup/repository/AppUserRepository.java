@@ -2,10 +2,59 @@ package com.example.prototypesetup.repository;
 
 import com.example.prototypesetup.entity.AppUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AppUserRepository extends JpaRepository<AppUser, Long> {
     AppUser findByFullName(String fullName);
     AppUser findByEmail(String email);
+
+    // What login needs and nothing more: read as a tuple through the unique email index, with no
+    // AppUser entity (eager role, location access) put into the persistence context
+    interface LoginCredentials {
+        Long getUserId();
+        String getPasswordHash();
+        String getRoleName();
+        boolean getActive();
+    }
+
+    @Query("SELECT u.userId AS userId, u.password AS passwordHash, r.roleName AS roleName, u.active AS active " +
+           "FROM AppUser u JOIN u.role r WHERE u.email = :email")
+    Optional<LoginCredentials> findLoginCredentials(@Param("email") String email);
+
+    // Set-based existence check: returns the subset of ids that exist, without loading the users
+    @Query("SELECT u.userId FROM AppUser u WHERE u.userId IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Fields of the in-memory search index (UserSearchIndex), for all users in one query
+    interface UserSearchRow {
+        Long getUserId();
+        String getFullName();
+        String getEmail();
+        String getContactNumber();
+        String getRoleName();
+    }
+
+    @Query("SELECT u.userId AS userId, u.fullName AS fullName, u.email AS email, " +
+           "u.contactNumber AS contactNumber, r.roleName AS roleName FROM AppUser u JOIN u.role r")
+    List<UserSearchRow> findAllForSearch();
+
+    @Query("SELECT u.userId FROM AppUser u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
+    // Swaps in a rehashed password only if it was not changed since it was read (0 = changed meanwhile)
+    @Modifying
+    @Transactional
+    @Query("UPDATE AppUser u SET u.password = :newHash WHERE u.userId = :userId AND u.password = :oldHash")
+    int replacePasswordHash(@Param("userId") Long userId,
+                            @Param("oldHash") String oldHash,
+                            @Param("newHash") String newHash);
 }
@@ -1,9 +1,43 @@
 package com.example.prototypesetup.repository;
 
 import com.example.prototypesetup.entity.Bin;
+import com.example.prototypesetup.entity.Device;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface BinRepository extends JpaRepository<Bin, Integer> {
-}
\ No newline at end of file
+
+    // Set-based existence check: returns the subset of ids that exist, without loading the rows
+    @Query("SELECT b.binId FROM Bin b WHERE b.binId IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT b.location.locationId FROM Bin b WHERE b.binId = :binId")
+    Optional<Integer> findLocationIdByBinId(@Param("binId") Integer binId);
+
+    // The bin a device is linked to (bin_device allows at most one)
+    @Query(value = "SELECT bd.bin_id FROM bin_device bd WHERE bd.device_id = :deviceId", nativeQuery = true)
+    Optional<Integer> findBinIdByDeviceId(@Param("deviceId") Long deviceId);
+
+    // Bin inventory in one query: the bins with their location, devices and the devices' type and status
+    String BIN_INVENTORY_FETCH =
+            "SELECT DISTINCT b FROM Bin b JOIN FETCH b.location l LEFT JOIN FETCH b.devices d " +
+            "LEFT JOIN FETCH d.type LEFT JOIN FETCH d.status ";
+
+    @Query(BIN_INVENTORY_FETCH + "WHERE (:locationId IS NULL OR l.locationId = :locationId) ORDER BY b.binId")
+    List<Bin> findInventory(@Param("locationId") Integer locationId);
+
+    @Query(BIN_INVENTORY_FETCH + "WHERE b.assetTag = :assetTag")
+    Optional<Bin> findInventoryByAssetTag(@Param("assetTag") String assetTag);
+
+    // Devices of one bin with their type and status (empty for an unknown or empty bin)
+    @Query("SELECT d FROM Bin b JOIN b.devices d JOIN FETCH d.type JOIN FETCH d.status " +
+           "WHERE b.binId = :binId ORDER BY d.deviceId")
+    List<Device> findDevicesInBin(@Param("binId") Integer binId);
+}
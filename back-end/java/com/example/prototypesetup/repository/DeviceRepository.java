@@ -4,11 +4,93 @@ import com.example.prototypesetup.entity.Device;
 import com.example.prototypesetup.entity.DeviceStatus;
 import com.example.prototypesetup.entity.DeviceType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface DeviceRepository extends JpaRepository<Device, Long> {
+public interface DeviceRepository extends JpaRepository<Device, Long>, DeviceRepositoryCustom {
     List<Device> findByStatus(DeviceStatus status);
     List<Device> findByType(DeviceType type);
+
+    // Which of the given serial numbers are already taken (one IN query for a whole import chunk)
+    @Query("SELECT d.serialNumber FROM Device d WHERE d.serialNumber IN :serialNumbers")
+    List<String> findExistingSerialNumbers(@Param("serialNumbers") Collection<String> serialNumbers);
+
+    // Flat listing row: the device plus the names of its type, status and location, fetched in one
+    // join query instead of initializing the lazy associations of every Device one by one.
+    interface DeviceSummary {
+        Long getDeviceId();
+        String getDeviceName();
+        String getSerialNumber();
+        Integer getDeviceTypeId();
+        String getDeviceTypeName();
+        Integer getDeviceStatusId();
+        String getDeviceStatusName();
+        Integer getLocationId();
+        String getLocationName();
+        Long getCreatedByUserId();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+        Long getVersion();
+    }
+
+    String DEVICE_SUMMARY_SELECT =
+            "SELECT d.deviceId AS deviceId, d.deviceName AS deviceName, d.serialNumber AS serialNumber, " +
+            "t.deviceTypeId AS deviceTypeId, t.deviceTypeName AS deviceTypeName, " +
+            "s.deviceStatusId AS deviceStatusId, s.statusName AS deviceStatusName, " +
+            "l.locationId AS locationId, l.locationName AS locationName, " +
+            "d.createdBy.userId AS createdByUserId, d.createdAt AS createdAt, d.updatedAt AS updatedAt, " +
+            "d.version AS version ";
+
+    String DEVICE_SUMMARY_FROM = "FROM Device d JOIN d.type t JOIN d.status s JOIN d.location l ";
+
+    // Scan lookup through the unique serial_number index
+    @Query(DEVICE_SUMMARY_SELECT + DEVICE_SUMMARY_FROM + "WHERE d.serialNumber = :serialNumber")
+    Optional<DeviceSummary> findSummaryBySerialNumber(@Param("serialNumber") String serialNumber);
+
+    // Number of devices per (location, device type, status), the cells of AvailabilityIndex
+    interface AvailabilityCount {
+        Integer getLocationId();
+        Integer getDeviceTypeId();
+        Integer getDeviceStatusId();
+        Long getDevices();
+    }
+
+    @Query("SELECT d.location.locationId AS locationId, d.type.deviceTypeId AS deviceTypeId, " +
+           "d.status.deviceStatusId AS deviceStatusId, COUNT(d) AS devices " +
+           "FROM Device d GROUP BY d.location.locationId, d.type.deviceTypeId, d.status.deviceStatusId")
+    List<AvailabilityCount> countByLocationTypeAndStatus();
+
+    // The same counts for the devices linked to one bin through bin_device (empty if the bin holds none)
+    @Query(value = "SELECT d.location_id AS locationId, d.device_type_id AS deviceTypeId, " +
+                   "d.device_status_id AS deviceStatusId, COUNT(*) AS devices " +
+                   "FROM device d JOIN bin_device bd ON bd.device_id = d.device_id WHERE bd.bin_id = :binId " +
+                   "GROUP BY d.location_id, d.device_type_id, d.device_status_id",
+           nativeQuery = true)
+    List<AvailabilityCount> countInBinByLocationTypeAndStatus(@Param("binId") Integer binId);
+
+    // One row (devices = 1) per device in the bin, row-locked until the transaction ends so the bin
+    // cannot change between this check and the following updateStatusInBin()
+    @Query(value = "SELECT d.location_id AS locationId, d.device_type_id AS deviceTypeId, " +
+                   "d.device_status_id AS deviceStatusId, 1 AS devices " +
+                   "FROM device d JOIN bin_device bd ON bd.device_id = d.device_id WHERE bd.bin_id = :binId FOR UPDATE",
+           nativeQuery = true)
+    List<AvailabilityCount> lockDevicesInBin(@Param("binId") Integer binId);
+
+    // Conditional status flip for every device linked to the bin through bin_device. Only rows still in
+    // fromStatus are changed, so when two checkouts race for the same bin the second one updates 0 rows.
+    @Modifying
+    @Query(value = "UPDATE device SET device_status_id = :toStatus, version = version + 1, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE device_status_id = :fromStatus " +
+                   "AND device_id IN (SELECT bd.device_id FROM bin_device bd WHERE bd.bin_id = :binId)",
+           nativeQuery = true)
+    int updateStatusInBin(@Param("binId") Integer binId,
+                          @Param("fromStatus") Integer fromStatus,
+                          @Param("toStatus") Integer toStatus);
 }
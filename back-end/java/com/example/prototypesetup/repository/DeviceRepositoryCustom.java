@@ -0,0 +1,18 @@
+package com.example.prototypesetup.repository;
+
+import com.example.prototypesetup.repository.DeviceRepository.DeviceSummary;
+
+import java.util.List;
+
+// Queries of DeviceRepository whose JPQL depends on the arguments (implemented in DeviceRepositoryImpl)
+public interface DeviceRepositoryCustom {
+
+    // Page of devices ordered by device_id. Every filter is optional (null = not applied), the cursor
+    // is the last device_id of the previous page; offset rows are skipped and at most limit returned.
+    List<DeviceSummary> findSummaries(Long cursor,
+                                      Integer statusId,
+                                      Integer typeId,
+                                      Integer locationId,
+                                      int offset,
+                                      int limit);
+}
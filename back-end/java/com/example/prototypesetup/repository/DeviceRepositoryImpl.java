@@ -0,0 +1,26 @@
+package com.example.prototypesetup.repository;
+
+import com.example.prototypesetup.repository.DeviceRepository.DeviceSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+
+// Only the filters that were given end up in the statement, so MySQL can pick the matching
+// idx_device_* index (see FilteredQuery)
+class DeviceRepositoryImpl implements DeviceRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DeviceSummary> findSummaries(Long cursor, Integer statusId, Integer typeId, Integer locationId,
+                                             int offset, int limit) {
+        return new FilteredQuery(DeviceRepository.DEVICE_SUMMARY_SELECT + DeviceRepository.DEVICE_SUMMARY_FROM)
+                .where("d.deviceId > :cursor", "cursor", cursor)
+                .where("s.deviceStatusId = :statusId", "statusId", statusId)
+                .where("t.deviceTypeId = :typeId", "typeId", typeId)
+                .where("l.locationId = :locationId", "locationId", locationId)
+                .list(entityManager, DeviceSummary.class, "ORDER BY d.deviceId ASC", offset, limit);
+    }
+}
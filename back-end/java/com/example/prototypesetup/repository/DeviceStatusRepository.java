@@ -4,6 +4,9 @@ import com.example.prototypesetup.entity.DeviceStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface DeviceStatusRepository extends JpaRepository<DeviceStatus, Integer> {
+    Optional<DeviceStatus> findByStatusName(String statusName);
 }
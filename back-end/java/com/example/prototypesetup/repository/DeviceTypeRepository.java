@@ -4,6 +4,9 @@ import com.example.prototypesetup.entity.DeviceType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface DeviceTypeRepository extends JpaRepository<DeviceType, Integer> {
+    Optional<DeviceType> findByDeviceTypeName(String deviceTypeName);
 }
@@ -0,0 +1,62 @@
+package com.example.prototypesetup.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    JPQL listing query whose WHERE clause holds only the filters that were given.
+    - A static "(:x IS NULL OR col = :x)" query is planned once by MySQL for every combination of
+      filters, so it cannot use the per-filter composite indexes and ends up walking the primary key.
+      With only the present predicates in the statement, each combination gets a plan of its own.
+    - The select list uses aliases named after the getters of an interface projection; rows are read
+      as tuples and returned as that projection, like the @Query methods of the repository.
+*/
+final class FilteredQuery {
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    private final StringBuilder jpql;
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+    private boolean hasWhere;
+
+    // selectFrom: SELECT list and FROM/JOIN clauses, without WHERE
+    FilteredQuery(String selectFrom) {
+        this.jpql = new StringBuilder(selectFrom);
+    }
+
+    // Adds the condition, which refers to :name, only when value is not null
+    FilteredQuery where(String condition, String name, Object value) {
+        if (value == null) return this;
+        jpql.append(hasWhere ? " AND " : " WHERE ").append(condition);
+        parameters.put(name, value);
+        hasWhere = true;
+        return this;
+    }
+
+    <T> List<T> list(EntityManager entityManager, Class<T> projection, String orderBy, int offset, int limit) {
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql + " " + orderBy, Tuple.class);
+        parameters.forEach(query::setParameter);
+        query.setFirstResult(offset);
+        query.setMaxResults(limit);
+        return query.getResultList().stream()
+                .map(tuple -> PROJECTIONS.createProjection(projection, toMap(tuple)))
+                .toList();
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> values = new HashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            values.put(element.getAlias(), tuple.get(element));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.prototypesetup.repository;
+
+import com.example.prototypesetup.entity.LoanActionType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface LoanActionTypeRepository extends JpaRepository<LoanActionType, Integer> {
+    Optional<LoanActionType> findByLoanActionName(String loanActionName);
+}
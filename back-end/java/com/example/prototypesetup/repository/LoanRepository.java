@@ -1,9 +1,100 @@
 package com.example.prototypesetup.repository;
 
 import com.example.prototypesetup.entity.Loan;
+import com.example.prototypesetup.entity.LoanStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface LoanRepository extends JpaRepository<Loan, Integer> {
-}
\ No newline at end of file
+public interface LoanRepository extends JpaRepository<Loan, Integer>, LoanRepositoryCustom {
+
+    // Flat read model of a loan: exactly the columns LoanResponseDTO needs, fetched in one join query
+    // so reads never trigger the eager Bin/AppUser/UserRole selects that loading a Loan entity does.
+    interface LoanView {
+        Integer getLoanId();
+        Integer getBinId();
+        Integer getLoanStatusId();
+        String getLoanStatusName();
+        Long getCitizenId();
+        Long getEmployeeId();
+        Timestamp getStartAt();
+        Timestamp getDueAt();
+        Timestamp getReturnedAt();
+        Integer getLoanConditionId();
+        String getLoanConditionName();
+        String getLoanConditionNotes();
+        Integer getReturnConditionId();
+        String getReturnConditionName();
+        String getReturnConditionNotes();
+        BigDecimal getDamageFee();
+        Boolean getAllAccessoriesReturned();
+        String getMissingAccessories();
+        String getNotes();
+        Timestamp getCreatedAt();
+        Timestamp getUpdatedAt();
+        Long getVersion();
+    }
+
+    String LOAN_VIEW_SELECT =
+            "SELECT l.loanId AS loanId, l.bin.binId AS binId, " +
+            "ls.loanStatusId AS loanStatusId, ls.loanStatusName AS loanStatusName, " +
+            "l.citizen.userId AS citizenId, l.employee.userId AS employeeId, " +
+            "l.startAt AS startAt, l.dueAt AS dueAt, l.returnedAt AS returnedAt, " +
+            "lc.deviceConditionId AS loanConditionId, lc.deviceConditionName AS loanConditionName, " +
+            "l.loanConditionNotes AS loanConditionNotes, " +
+            "rc.deviceConditionId AS returnConditionId, rc.deviceConditionName AS returnConditionName, " +
+            "l.returnConditionNotes AS returnConditionNotes, l.damageFee AS damageFee, " +
+            "l.allAccessoriesReturned AS allAccessoriesReturned, l.missingAccessories AS missingAccessories, " +
+            "l.notes AS notes, l.createdAt AS createdAt, l.updatedAt AS updatedAt, l.version AS version " +
+            "FROM Loan l JOIN l.loanStatus ls JOIN l.loanCondition lc LEFT JOIN l.returnCondition rc ";
+
+    // Keys of a loan that has not been returned yet, for OpenLoanIndex
+    interface OpenLoanView {
+        Integer getLoanId();
+        Integer getBinId();
+        Long getCitizenId();
+        Long getVersion();
+    }
+
+    @Query("SELECT l.loanId AS loanId, l.bin.binId AS binId, l.citizen.userId AS citizenId, l.version AS version " +
+           "FROM Loan l WHERE l.returnedAt IS NULL")
+    List<OpenLoanView> findOpenLoans();
+
+    @Query(LOAN_VIEW_SELECT + "WHERE l.loanId = :loanId")
+    Optional<LoanView> findViewById(@Param("loanId") Integer loanId);
+
+    // Every loan in loan_id order as a lazily consumed stream, for exports. The fetch size of
+    // Integer.MIN_VALUE makes MySQL Connector/J stream rows one at a time instead of buffering the
+    // whole result set, so memory stays flat. Must be consumed inside a (read-only) transaction and closed.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(LOAN_VIEW_SELECT + "ORDER BY l.loanId ASC")
+    Stream<LoanView> streamAll();
+
+    // Set-based status transition for open loans due before dueBefore. Runs as one UPDATE on the
+    // (loan_status_id, due_at) index instead of loading Loan entities; the index range only holds
+    // open loans that are already due, i.e. the rows this update flips.
+    // Bumps version so clients holding an older ETag get 412 instead of overwriting the new status.
+    @Modifying
+    @Query("UPDATE Loan l SET l.loanStatus = :overdue, l.updatedAt = :now, l.version = l.version + 1 " +
+           "WHERE l.loanStatus = :open AND l.returnedAt IS NULL " +
+           "AND l.dueAt < :dueBefore")
+    int markOverdue(@Param("open") LoanStatus open,
+                    @Param("overdue") LoanStatus overdue,
+                    @Param("dueBefore") Timestamp dueBefore,
+                    @Param("now") Timestamp now);
+}
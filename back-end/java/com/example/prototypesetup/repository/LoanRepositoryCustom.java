@@ -0,0 +1,21 @@
+package com.example.prototypesetup.repository;
+
+import com.example.prototypesetup.repository.LoanRepository.LoanView;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// Queries of LoanRepository whose JPQL depends on the arguments (implemented in LoanRepositoryImpl)
+public interface LoanRepositoryCustom {
+
+    // Keyset page of loans ordered by loan_id. Every filter is optional (null = not applied), the
+    // cursor is the last loan_id of the previous page and at most limit rows are returned.
+    List<LoanView> findPage(Integer cursor,
+                            Integer loanStatusId,
+                            Long citizenId,
+                            Long employeeId,
+                            Integer binId,
+                            Timestamp dueFrom,
+                            Timestamp dueBefore,
+                            int limit);
+}
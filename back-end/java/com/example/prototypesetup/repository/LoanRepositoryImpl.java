@@ -0,0 +1,30 @@
+package com.example.prototypesetup.repository;
+
+import com.example.prototypesetup.repository.LoanRepository.LoanView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// Only the filters that were given end up in the statement, so MySQL can pick the matching
+// idx_loan_* index (see FilteredQuery)
+class LoanRepositoryImpl implements LoanRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<LoanView> findPage(Integer cursor, Integer loanStatusId, Long citizenId, Long employeeId,
+                                   Integer binId, Timestamp dueFrom, Timestamp dueBefore, int limit) {
+        return new FilteredQuery(LoanRepository.LOAN_VIEW_SELECT)
+                .where("l.loanId > :cursor", "cursor", cursor)
+                .where("ls.loanStatusId = :loanStatusId", "loanStatusId", loanStatusId)
+                .where("l.citizen.userId = :citizenId", "citizenId", citizenId)
+                .where("l.employee.userId = :employeeId", "employeeId", employeeId)
+                .where("l.bin.binId = :binId", "binId", binId)
+                .where("l.dueAt >= :dueFrom", "dueFrom", dueFrom)
+                .where("l.dueAt < :dueBefore", "dueBefore", dueBefore)
+                .list(entityManager, LoanView.class, "ORDER BY l.loanId ASC", 0, limit);
+    }
+}
@@ -4,6 +4,9 @@ import com.example.prototypesetup.entity.LoanStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface LoanStatusRepository extends JpaRepository<LoanStatus, Integer> {
-}
\ No newline at end of file
+    Optional<LoanStatus> findByLoanStatusName(String loanStatusName);
+}
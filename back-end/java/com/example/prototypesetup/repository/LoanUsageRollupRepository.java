@@ -0,0 +1,66 @@
+package com.example.prototypesetup.repository;
+
+import com.example.prototypesetup.entity.LoanUsageRollup;
+import com.example.prototypesetup.entity.LoanUsageRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface LoanUsageRollupRepository extends JpaRepository<LoanUsageRollup, LoanUsageRollupId> {
+
+    // Adds checkouts/returns of the given bin to the month's buckets: one row per device type in the bin,
+    // inserted or incremented in a single statement. checkouts/returns are loan counts (usually 0 or 1).
+    @Modifying
+    @Query(value = "INSERT INTO loan_usage_rollup (usage_month, location_id, device_type_id, devices_checked_out, devices_returned) " +
+                   "SELECT t.usage_month, t.location_id, t.device_type_id, t.checked_out, t.returned FROM (" +
+                   "  SELECT CAST(:month AS DATE) AS usage_month, b.location_id AS location_id, d.device_type_id AS device_type_id, " +
+                   "         COUNT(*) * :checkouts AS checked_out, COUNT(*) * :returns AS returned " +
+                   "  FROM bin b JOIN bin_device bd ON bd.bin_id = b.bin_id JOIN device d ON d.device_id = bd.device_id " +
+                   "  WHERE b.bin_id = :binId " +
+                   "  GROUP BY b.location_id, d.device_type_id) t " +
+                   "ON DUPLICATE KEY UPDATE devices_checked_out = devices_checked_out + VALUES(devices_checked_out), " +
+                   "devices_returned = devices_returned + VALUES(devices_returned)",
+           nativeQuery = true)
+    int addBinUsage(@Param("month") LocalDate month,
+                    @Param("binId") Integer binId,
+                    @Param("checkouts") int checkouts,
+                    @Param("returns") int returns);
+
+    // Rebuild from scratch (after deleteAllInBatch): checkouts by start month, then returns by return month.
+    // Uses the bins' current bin_device contents.
+    @Modifying
+    @Query(value = "INSERT INTO loan_usage_rollup (usage_month, location_id, device_type_id, devices_checked_out, devices_returned) " +
+                   "SELECT DATE_FORMAT(l.start_at, '%Y-%m-01'), b.location_id, d.device_type_id, COUNT(*), 0 " +
+                   "FROM loan l JOIN bin b ON b.bin_id = l.bin_id " +
+                   "JOIN bin_device bd ON bd.bin_id = b.bin_id JOIN device d ON d.device_id = bd.device_id " +
+                   "GROUP BY DATE_FORMAT(l.start_at, '%Y-%m-01'), b.location_id, d.device_type_id",
+           nativeQuery = true)
+    int rebuildCheckouts();
+
+    @Modifying
+    @Query(value = "INSERT INTO loan_usage_rollup (usage_month, location_id, device_type_id, devices_checked_out, devices_returned) " +
+                   "SELECT t.usage_month, t.location_id, t.device_type_id, 0, t.returned FROM (" +
+                   "  SELECT DATE_FORMAT(l.returned_at, '%Y-%m-01') AS usage_month, b.location_id AS location_id, " +
+                   "         d.device_type_id AS device_type_id, COUNT(*) AS returned " +
+                   "  FROM loan l JOIN bin b ON b.bin_id = l.bin_id " +
+                   "  JOIN bin_device bd ON bd.bin_id = b.bin_id JOIN device d ON d.device_id = bd.device_id " +
+                   "  WHERE l.returned_at IS NOT NULL " +
+                   "  GROUP BY DATE_FORMAT(l.returned_at, '%Y-%m-01'), b.location_id, d.device_type_id) t " +
+                   "ON DUPLICATE KEY UPDATE devices_returned = VALUES(devices_returned)",
+           nativeQuery = true)
+    int rebuildReturns();
+
+    @Query("SELECT r FROM LoanUsageRollup r " +
+           "WHERE r.usageMonth >= :fromMonth AND r.usageMonth <= :toMonth " +
+           "AND (:locationId IS NULL OR r.locationId = :locationId) " +
+           "ORDER BY r.usageMonth ASC, r.deviceTypeId ASC")
+    List<LoanUsageRollup> findBuckets(@Param("fromMonth") LocalDate fromMonth,
+                                      @Param("toMonth") LocalDate toMonth,
+                                      @Param("locationId") Integer locationId);
+}
@@ -0,0 +1,12 @@
+package com.example.prototypesetup.repository;
+
+import com.example.prototypesetup.entity.TransactionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TransactionStatusRepository extends JpaRepository<TransactionStatus, Integer> {
+    Optional<TransactionStatus> findByTransactionStatusName(String transactionStatusName);
+}
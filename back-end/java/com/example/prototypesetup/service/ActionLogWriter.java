@@ -0,0 +1,107 @@
+package com.example.prototypesetup.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Records mutating API calls in action_log without a synchronous insert per request (see ActionLogInterceptor).
+@Service
+public class ActionLogWriter extends AsyncBatchWriter<ActionLogWriter.ActionLogEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionLogWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO action_log (app_user_id, user_action_type_id, user_record_id, loan_record_id, device_record_id, " +
+            "current_url, api_endpoint, action_details, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Values of user_action_type.user_action_type_name
+    public enum UserAction { CREATE, READ, UPDATE, DELETE }
+
+    // Which action_log column the affected record id goes into
+    public enum RecordType { USER, LOAN, DEVICE }
+
+    public record ActionLogEvent(String subject, UserAction action, RecordType recordType, Long recordId,
+                                 String currentUrl, String apiEndpoint, String details, Timestamp occurredAt) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AppUserIdCache appUserIdCache;
+
+    private final Map<UserAction, Integer> actionTypeIds = new ConcurrentHashMap<>();
+
+    public ActionLogWriter(JdbcTemplate jdbcTemplate,
+                           AppUserIdCache appUserIdCache,
+                           MeterRegistry meterRegistry,
+                           @Value("${action-log.queue-capacity:10000}") int queueCapacity,
+                           @Value("${action-log.batch-size:200}") int batchSize,
+                           @Value("${action-log.offer-timeout-ms:5}") long offerTimeoutMs) {
+        super("action_log", queueCapacity, batchSize, offerTimeoutMs, meterRegistry);
+        this.jdbcTemplate = jdbcTemplate;
+        this.appUserIdCache = appUserIdCache;
+    }
+
+    @Override
+    protected void writeBatch(List<ActionLogEvent> batch) {
+        List<ActionLogEvent> rows = new ArrayList<>(batch.size());
+        List<Long> userIds = new ArrayList<>(batch.size());
+        for (ActionLogEvent event : batch) {
+            // The JWT only carries the user's email
+            Long userId = appUserIdCache.resolve(event.subject());
+            if (userId == null) {
+                // action_log.app_user_id is NOT NULL, e.g. the account was deleted after the token was issued
+                log.warn("action_log: no app_user for subject {}, skipped {}", event.subject(), event);
+                continue;
+            }
+            rows.add(event);
+            userIds.add(userId);
+        }
+        if (rows.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ActionLogEvent event = rows.get(i);
+                ps.setLong(1, userIds.get(i));
+                ps.setInt(2, resolveActionTypeId(event.action()));
+                setRecordId(ps, 3, event, RecordType.USER);
+                setRecordId(ps, 4, event, RecordType.LOAN);
+                setRecordId(ps, 5, event, RecordType.DEVICE);
+                ps.setString(6, event.currentUrl());
+                ps.setString(7, event.apiEndpoint());
+                ps.setString(8, event.details());
+                ps.setTimestamp(9, event.occurredAt());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    private static void setRecordId(PreparedStatement ps, int index, ActionLogEvent event, RecordType column)
+            throws SQLException {
+        if (event.recordType() == column && event.recordId() != null) {
+            ps.setLong(index, event.recordId());
+        } else {
+            ps.setNull(index, column == RecordType.LOAN ? Types.INTEGER : Types.BIGINT);
+        }
+    }
+
+    private int resolveActionTypeId(UserAction action) {
+        return actionTypeIds.computeIfAbsent(action, a -> jdbcTemplate.queryForObject(
+                "SELECT user_action_type_id FROM user_action_type WHERE user_action_type_name = ?", Integer.class, a.name()));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.repository.AppUserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+    Maps a JWT subject (the user's email) to app_user_id for the audit writers, which only get the
+    subject from the request and must not read app_user once per event.
+    - Bounded LRU (audit.user-id-cache-size entries). Emails that match no user are not cached.
+    - AppUserController calls forgetUser() when a user is updated or deleted, so an email that was
+      changed or freed never keeps pointing at the old account. A generation counter stops a lookup
+      that was already reading the database from caching the old mapping afterwards.
+*/
+@Service
+public class AppUserIdCache {
+
+    private final AppUserRepository appUserRepository;
+
+    // Guarded by "this", like generation
+    private final Map<String, Long> userIdsByEmail;
+    private long generation;
+
+    public AppUserIdCache(AppUserRepository appUserRepository,
+                          @Value("${audit.user-id-cache-size:10000}") int cacheSize) {
+        this.appUserRepository = appUserRepository;
+        this.userIdsByEmail = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // null if no user has this email
+    public Long resolve(String email) {
+        if (email == null) return null;
+        // email uses a case-insensitive collation
+        String key = email.trim().toLowerCase(Locale.ROOT);
+        long seenGeneration;
+        synchronized (this) {
+            Long cached = userIdsByEmail.get(key);
+            if (cached != null) return cached;
+            seenGeneration = generation;
+        }
+        Long loaded = appUserRepository.findIdByEmail(email).orElse(null);
+        if (loaded != null) {
+            synchronized (this) {
+                if (generation == seenGeneration) userIdsByEmail.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void forgetUser(Long userId) {
+        if (userId == null) return;
+        generation++;
+        userIdsByEmail.values().removeIf(userId::equals);
+    }
+}
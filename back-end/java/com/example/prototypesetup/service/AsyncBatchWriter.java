@@ -0,0 +1,169 @@
+package com.example.prototypesetup.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Moves audit inserts off the request path.
+    - Request threads call submit(), which only puts the event on a bounded in-memory queue.
+    - When the queue is full, submit() waits at most offerTimeoutMs (backpressure) and then drops the event.
+      Drops are logged at most every 10 seconds, with the number dropped since the previous warning.
+    - One background thread drains the queue and hands up to batchSize events at a time to writeBatch().
+    - On shutdown the thread stops and everything still queued is flushed. The writer stops after the
+      web server, so requests that are still finishing can enqueue their events.
+    Metrics: <name>.queue.depth, <name>.events.written, <name>.events.dropped, <name>.events.failed
+*/
+public abstract class AsyncBatchWriter<T> implements SmartLifecycle {
+
+    private static final long POLL_TIMEOUT_MS = 250;
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+    private static final long DROP_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+
+    private final Object drainLock = new Object();
+    private final AtomicLong droppedSinceWarning = new AtomicLong();
+    private final AtomicLong nextDropWarning = new AtomicLong(System.nanoTime());
+    private volatile boolean running;
+    private Thread worker;
+
+    protected AsyncBatchWriter(String name, int queueCapacity, int batchSize, long offerTimeoutMs, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+
+        Gauge.builder(name + ".queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter(name + ".events.written");
+        this.droppedCounter = meterRegistry.counter(name + ".events.dropped");
+        this.failedCounter = meterRegistry.counter(name + ".events.failed");
+    }
+
+    // Writes one batch of events, e.g. as a single JDBC batch. Called only from the writer thread.
+    protected abstract void writeBatch(List<T> batch);
+
+    public boolean submit(T event) {
+        try {
+            if (running && queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        droppedCounter.increment();
+        warnDropped(event);
+        return false;
+    }
+
+    // A full queue drops thousands of events per second, so only one thread per interval gets to log
+    private void warnDropped(T event) {
+        long dropped = droppedSinceWarning.incrementAndGet();
+        long now = System.nanoTime();
+        long due = nextDropWarning.get();
+        if (now - due < 0 || !nextDropWarning.compareAndSet(due, now + DROP_LOG_INTERVAL_NANOS)) return;
+        dropped = droppedSinceWarning.getAndSet(0);
+        log.warn("{} queue is full or stopped, {} events dropped since the last warning (latest {})", name, dropped, event);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        worker = new Thread(this::runLoop, name + "-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        try {
+            worker.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything submitted while the worker was exiting
+        drainAndFlush();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Lower than the embedded web server's phases: started before it and stopped after it
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                T first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                List<T> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        drainAndFlush();
+    }
+
+    private void drainAndFlush() {
+        synchronized (drainLock) {
+            List<T> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    private void flush(List<T> batch) {
+        try {
+            writeBatch(batch);
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                failedCounter.increment();
+                log.error("{} failed to write event {}", name, batch.get(0), e);
+                return;
+            }
+            // One bad row (e.g. its loan was deleted meanwhile) must not lose the whole batch
+            log.warn("{} batch of {} failed, retrying events one at a time", name, batch.size(), e);
+            for (T event : batch) {
+                flush(List.of(event));
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.Device;
+import com.example.prototypesetup.entity.Location;
+import com.example.prototypesetup.repository.DeviceRepository;
+import com.example.prototypesetup.repository.DeviceRepository.AvailabilityCount;
+import com.example.prototypesetup.repository.LocationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+    In-memory device counts per (location, device type, status), served by GET /api/availability
+    without reading the device table.
+    - Seeded with one GROUP BY once the application is ready.
+    - DeviceController and LoanCheckoutService report the cells a write moved devices between.
+      Inside a transaction the change is applied only after commit, so rollbacks never show up.
+    - reconcile() re-runs the GROUP BY on a schedule and overwrites the counters. It corrects drift
+      from writes made outside the API or from races between a write and the next reconcile.
+    - The queries run without blocking writers. Deltas applied while they run are recorded and applied
+      again on top of the new counts, since the GROUP BY may not have seen their commit. A write that
+      committed just before the query but was reported after it started is then counted twice until
+      the next reconcile; that short-lived drift is accepted.
+    Metric: availability.drift.corrections (cells whose count the reconcile had to change)
+*/
+@Service
+public class AvailabilityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    public record Cell(Integer locationId, Integer deviceTypeId, Integer deviceStatusId) {}
+
+    private final DeviceRepository deviceRepository;
+    private final LocationRepository locationRepository;
+    private final Counter driftCounter;
+
+    private final Map<Cell, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private final Map<Integer, String> locationNames = new ConcurrentHashMap<>();
+
+    // Counter updates share the read lock, reconcile() takes the write lock to swap in the new counters
+    private final ReadWriteLock reconcileLock = new ReentrantReadWriteLock();
+    // Deltas applied since the running reconcile started its queries, null while none runs
+    private Queue<Map<Cell, Integer>> deltasDuringReconcile;
+
+    public AvailabilityIndex(DeviceRepository deviceRepository,
+                             LocationRepository locationRepository,
+                             MeterRegistry meterRegistry) {
+        this.deviceRepository = deviceRepository;
+        this.locationRepository = locationRepository;
+        this.driftCounter = meterRegistry.counter("availability.drift.corrections");
+    }
+
+    public static Cell cellOf(Device device) {
+        return new Cell(
+                device.getLocation() != null ? device.getLocation().getLocationId() : null,
+                device.getType() != null ? device.getType().getDeviceTypeId() : null,
+                device.getStatus() != null ? device.getStatus().getDeviceStatusId() : null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${availability.reconcile-interval-ms:300000}",
+               initialDelayString = "${availability.reconcile-interval-ms:300000}")
+    // synchronized: the startup run and a scheduled run never share deltasDuringReconcile
+    public synchronized void reconcile() {
+        Queue<Map<Cell, Integer>> recorded = new ConcurrentLinkedQueue<>();
+        reconcileLock.writeLock().lock();
+        try {
+            deltasDuringReconcile = recorded;
+        } finally {
+            reconcileLock.writeLock().unlock();
+        }
+
+        List<AvailabilityCount> rows;
+        Map<Integer, String> names = new HashMap<>();
+        try {
+            rows = deviceRepository.countByLocationTypeAndStatus();
+            for (Location location : locationRepository.findAll()) {
+                names.put(location.getLocationId(), location.getLocationName());
+            }
+        } catch (RuntimeException e) {
+            stopRecording();
+            throw e;
+        }
+
+        // Only the swap holds the write lock, no SQL
+        reconcileLock.writeLock().lock();
+        try {
+            deltasDuringReconcile = null;
+            Map<Cell, Integer> actual = new HashMap<>();
+            rows.forEach(row -> actual.put(
+                    new Cell(row.getLocationId(), row.getDeviceTypeId(), row.getDeviceStatusId()),
+                    row.getDevices().intValue()));
+            recorded.forEach(deltas -> deltas.forEach((cell, delta) -> actual.merge(cell, delta, Integer::sum)));
+
+            Set<Cell> cells = new HashSet<>(counts.keySet());
+            cells.addAll(actual.keySet());
+            int corrected = 0;
+            for (Cell cell : cells) {
+                AtomicInteger counter = counts.get(cell);
+                int expected = actual.getOrDefault(cell, 0);
+                if (counter == null ? expected != 0 : counter.get() != expected) corrected++;
+            }
+            counts.clear();
+            actual.forEach((cell, devices) -> counts.put(cell, new AtomicInteger(devices)));
+            locationNames.clear();
+            locationNames.putAll(names);
+
+            if (corrected > 0) {
+                driftCounter.increment(corrected);
+                log.info("Availability index reconciled, {} of {} cells corrected", corrected, cells.size());
+            }
+        } finally {
+            reconcileLock.writeLock().unlock();
+        }
+    }
+
+    private void stopRecording() {
+        reconcileLock.writeLock().lock();
+        try {
+            deltasDuringReconcile = null;
+        } finally {
+            reconcileLock.writeLock().unlock();
+        }
+    }
+
+    // A device was created (before == null), deleted (after == null) or changed location, type or status
+    public void recordMove(Cell before, Cell after) {
+        if (before != null && before.equals(after)) return;
+        Map<Cell, Integer> deltas = new HashMap<>();
+        if (before != null) deltas.merge(before, -1, Integer::sum);
+        if (after != null) deltas.merge(after, 1, Integer::sum);
+        applyAfterCommit(deltas);
+    }
+
+    // Devices of a bin changed status together (checkout / return); counts hold the devices per cell
+    // before the change, only the cells with fromStatus move
+    public void recordBinStatusChange(List<AvailabilityCount> counts, Integer fromStatus, Integer toStatus) {
+        Map<Cell, Integer> deltas = new HashMap<>();
+        for (AvailabilityCount row : counts) {
+            if (!fromStatus.equals(row.getDeviceStatusId())) continue;
+            int devices = row.getDevices().intValue();
+            deltas.merge(new Cell(row.getLocationId(), row.getDeviceTypeId(), fromStatus), -devices, Integer::sum);
+            deltas.merge(new Cell(row.getLocationId(), row.getDeviceTypeId(), toStatus), devices, Integer::sum);
+        }
+        applyAfterCommit(deltas);
+    }
+
+    // Current counts with at least one device, optionally for one location
+    public Map<Cell, Integer> snapshot(Integer locationId) {
+        Map<Cell, Integer> snapshot = new HashMap<>();
+        counts.forEach((cell, counter) -> {
+            int devices = counter.get();
+            if (devices > 0 && (locationId == null || locationId.equals(cell.locationId()))) {
+                snapshot.put(cell, devices);
+            }
+        });
+        return snapshot;
+    }
+
+    public Optional<String> findLocationName(Integer locationId) {
+        if (locationId == null) return Optional.empty();
+        String name = locationNames.get(locationId);
+        if (name != null) return Optional.of(name);
+        // Location created since the last reconcile
+        Optional<String> loaded = locationRepository.findById(locationId).map(Location::getLocationName);
+        loaded.ifPresent(n -> locationNames.put(locationId, n));
+        return loaded;
+    }
+
+    private void applyAfterCommit(Map<Cell, Integer> deltas) {
+        if (deltas.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(deltas);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(deltas);
+            }
+        });
+    }
+
+    private void apply(Map<Cell, Integer> deltas) {
+        reconcileLock.readLock().lock();
+        try {
+            deltas.forEach((cell, delta) -> {
+                if (delta != 0) counts.computeIfAbsent(cell, c -> new AtomicInteger()).addAndGet(delta);
+            });
+            Queue<Map<Cell, Integer>> recorded = deltasDuringReconcile;
+            if (recorded != null) recorded.add(deltas);
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.Loan;
+import com.example.prototypesetup.repository.BinRepository;
+import com.example.prototypesetup.service.AvailabilityIndex.Cell;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Pushes compact change events to the staff pages over Server-Sent Events (GET /api/events), so
+    they no longer re-fetch the full device and loan lists to notice changes.
+    - DeviceController and LoanController publish once a write has committed.
+    - Every subscriber has its own bounded queue, drained by its own sender thread that writes to the
+      connection. Writers only offer() to the queues, so a slow or stuck client never blocks them.
+      Sender threads are virtual: they spend nearly all their time parked on the queue, so hundreds of
+      subscribers cost no platform threads.
+    - A subscriber whose queue overflows is disconnected: it leaves the subscriber set at once, and its
+      sender completes the connection once its current write returns. EventSource reconnects by itself
+      and the page reloads its data; events missed in between are not replayed.
+    - Idle connections get a comment line every heartbeat interval, which also detects dead clients.
+    Metrics: events.subscribers (gauge), events.published, events.subscribers.dropped
+*/
+@Service
+public class ChangeEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeEventBroadcaster.class);
+
+    public static final String DEVICE_STATUS = "device.status";
+    public static final String DEVICES_IMPORTED = "devices.imported";
+    public static final String LOAN_CREATED = "loan.created";
+    public static final String LOAN_RETURNED = "loan.returned";
+
+    private static final int MAX_EVENTS_PER_WRITE = 64;
+
+    private final BinRepository binRepository;
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private final long heartbeatMs;
+    private final Counter publishedCounter;
+    private final Counter droppedCounter;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextEventId = new AtomicLong(1);
+    private final Map<Integer, Integer> binLocations = new ConcurrentHashMap<>();
+
+    public ChangeEventBroadcaster(BinRepository binRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${events.queue-capacity:256}") int queueCapacity,
+                                  @Value("${events.max-subscribers:500}") int maxSubscribers,
+                                  @Value("${events.timeout-ms:1800000}") long timeoutMs,
+                                  @Value("${events.heartbeat-ms:25000}") long heartbeatMs) {
+        this.binRepository = binRepository;
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatMs = heartbeatMs;
+        Gauge.builder("events.subscribers", subscribers, Set::size).register(meterRegistry);
+        this.publishedCounter = meterRegistry.counter("events.published");
+        this.droppedCounter = meterRegistry.counter("events.subscribers.dropped");
+    }
+
+    // locationId == null receives the events of every location
+    public SseEmitter subscribe(Integer locationId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many event subscribers, try again later");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(locationId, emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscribers.add(subscriber);
+        Thread.ofVirtual().name("sse-subscriber").start(subscriber);
+        return emitter;
+    }
+
+    // A device was created (before == null), deleted (after == null) or changed status or location
+    public void publishDeviceChange(Long deviceId, Cell before, Cell after) {
+        if (subscribers.isEmpty() || Objects.equals(before, after)) return;
+        if (before != null && after != null
+                && Objects.equals(before.deviceStatusId(), after.deviceStatusId())
+                && Objects.equals(before.locationId(), after.locationId())) return;
+
+        ChangeEvent event = new ChangeEvent(DEVICE_STATUS);
+        event.device_id = deviceId;
+        event.location_id = after != null ? after.locationId() : before.locationId();
+        event.device_status_id = after != null ? after.deviceStatusId() : null;
+        if (before != null) {
+            event.previous_status_id = before.deviceStatusId();
+            if (!Objects.equals(before.locationId(), event.location_id)) event.previous_location_id = before.locationId();
+        }
+        publish(event);
+    }
+
+    // Sent to every subscriber, whatever its location
+    public void publishDevicesImported(int created) {
+        if (subscribers.isEmpty() || created == 0) return;
+        ChangeEvent event = new ChangeEvent(DEVICES_IMPORTED);
+        event.count = created;
+        publish(event);
+    }
+
+    // The loan's bin went out: its devices are now Loaned
+    public void publishLoanCreated(Loan loan) {
+        publishLoan(LOAN_CREATED, loan.getLoanId(), loan.getBinId());
+    }
+
+    // The loan's bin came back (or its open loan was deleted): its devices are Available again
+    public void publishLoanReturned(Loan loan) {
+        publishLoan(LOAN_RETURNED, loan.getLoanId(), loan.getBinId());
+    }
+
+    // An open loan moved off this bin
+    public void publishLoanReturned(Integer loanId, Integer binId) {
+        publishLoan(LOAN_RETURNED, loanId, binId);
+    }
+
+    private void publishLoan(String type, Integer loanId, Integer binId) {
+        // Skips the bin lookup while nobody listens
+        if (subscribers.isEmpty()) return;
+        ChangeEvent event = new ChangeEvent(type);
+        event.loan_id = loanId;
+        event.bin_id = binId;
+        event.location_id = binLocation(binId);
+        publish(event);
+    }
+
+    // Bins do not move between locations through the API, so each bin is looked up once
+    private Integer binLocation(Integer binId) {
+        if (binId == null) return null;
+        Integer cached = binLocations.get(binId);
+        if (cached != null) return cached;
+        try {
+            Integer locationId = binRepository.findLocationIdByBinId(binId).orElse(null);
+            if (locationId != null) binLocations.put(binId, locationId);
+            return locationId;
+        } catch (RuntimeException e) {
+            // The loan is already committed; without a location the event still reaches every subscriber
+            log.warn("Could not look up the location of bin {}", binId, e);
+            return null;
+        }
+    }
+
+    private void publish(ChangeEvent event) {
+        event.id = nextEventId.getAndIncrement();
+        publishedCounter.increment();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.accepts(event)) subscriber.offer(event);
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+        private final Integer locationId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<ChangeEvent> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean overflowed;
+
+        Subscriber(Integer locationId, SseEmitter emitter) {
+            this.locationId = locationId;
+            this.emitter = emitter;
+        }
+
+        boolean accepts(ChangeEvent event) {
+            return locationId == null || event.location_id == null
+                    || locationId.equals(event.location_id) || locationId.equals(event.previous_location_id);
+        }
+
+        // Called by writers: never blocks
+        void offer(ChangeEvent event) {
+            if (queue.offer(event)) return;
+            droppedCounter.increment();
+            log.info("Event subscriber for location {} fell {} events behind, disconnecting", locationId, queueCapacity);
+            // complete() would wait for a send() that may be stuck on the slow connection, so the
+            // sender completes the emitter; its queue is full, so it notices as soon as that send returns
+            overflowed = true;
+            close();
+        }
+
+        @Override
+        public void run() {
+            try {
+                emitter.send(SseEmitter.event().comment("connected"));
+                while (!closed.get()) {
+                    ChangeEvent event = queue.poll(heartbeatMs, TimeUnit.MILLISECONDS);
+                    if (closed.get()) break;
+                    if (event == null) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                        continue;
+                    }
+                    // Everything already queued goes out in one write and flush
+                    List<ChangeEvent> events = new ArrayList<>();
+                    events.add(event);
+                    queue.drainTo(events, MAX_EVENTS_PER_WRITE - 1);
+                    Set<ResponseBodyEmitter.DataWithMediaType> items = new LinkedHashSet<>();
+                    for (ChangeEvent queued : events) {
+                        items.addAll(SseEmitter.event()
+                                .id(String.valueOf(queued.id))
+                                .name(queued.type)
+                                .data(queued, MediaType.APPLICATION_JSON)
+                                .build());
+                    }
+                    emitter.send(items);
+                }
+                if (overflowed) emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // Client disconnected or the emitter already completed
+                close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+            }
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ChangeEvent {
+        private long id;
+        private final String type;
+        private final LocalDateTime at = LocalDateTime.now();
+        private Integer location_id;
+        private Integer previous_location_id;
+        private Long device_id;
+        private Integer device_status_id;
+        private Integer previous_status_id;
+        private Integer loan_id;
+        private Integer bin_id;
+        private Integer count;
+
+        ChangeEvent(String type) {
+            this.type = type;
+        }
+
+        public long getId() { return id; }
+        public String getType() { return type; }
+        public LocalDateTime getAt() { return at; }
+        public Integer getLocation_id() { return location_id; }
+        public Integer getPrevious_location_id() { return previous_location_id; }
+        public Long getDevice_id() { return device_id; }
+        public Integer getDevice_status_id() { return device_status_id; }
+        public Integer getPrevious_status_id() { return previous_status_id; }
+        public Integer getLoan_id() { return loan_id; }
+        public Integer getBin_id() { return bin_id; }
+        public Integer getCount() { return count; }
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.DeviceStatus;
+import com.example.prototypesetup.entity.DeviceType;
+import com.example.prototypesetup.entity.Location;
+import com.example.prototypesetup.repository.DeviceRepository;
+import com.example.prototypesetup.repository.LocationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/*
+    Bulk device import from CSV (POST /api/devices/import).
+    - The file is read line by line and handled in chunks of CHUNK_SIZE rows, so memory use does not
+      grow with the file.
+    - Type, status and location names are resolved through ReferenceDataService and a per-import
+      location cache, not one findById per row.
+    - Serial numbers are checked with one IN query per chunk (and against the rest of the file),
+      then the valid rows are inserted as one JDBC batch.
+    - Every chunk is committed on its own. If a batch still hits the unique serial_number (a device
+      created concurrently), that chunk is retried row by row so only the conflicting rows fail.
+    Expected header: device_name,serial_number,device_type,location[,device_status]
+    device_status defaults to Available.
+*/
+@Service
+public class DeviceImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceImportService.class);
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final String DEFAULT_STATUS = "Available";
+    private static final List<String> REQUIRED_COLUMNS = List.of("device_name", "serial_number", "device_type", "location");
+
+    // MySQL error codes for the integrity violations an import row can hit
+    private static final int MYSQL_NOT_NULL = 1048;
+    private static final int MYSQL_DATA_TOO_LONG = 1406;
+    private static final int MYSQL_FOREIGN_KEY_PARENT = 1216;
+    private static final int MYSQL_FOREIGN_KEY = 1452;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO device (device_name, serial_number, device_type_id, device_status_id, location_id, created_by_user_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    public record RowError(int line, String serialNumber, String error) {}
+
+    public record ImportReport(int created, int failed, List<RowError> errors) {}
+
+    private record DeviceRow(int line, String deviceName, String serialNumber,
+                             Integer deviceTypeId, Integer deviceStatusId, Integer locationId) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeviceRepository deviceRepository;
+    private final LocationRepository locationRepository;
+    private final ReferenceDataService referenceDataService;
+    private final AvailabilityIndex availabilityIndex;
+    private final TransactionTemplate chunkTransaction;
+
+    public DeviceImportService(JdbcTemplate jdbcTemplate,
+                               DeviceRepository deviceRepository,
+                               LocationRepository locationRepository,
+                               ReferenceDataService referenceDataService,
+                               AvailabilityIndex availabilityIndex,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.deviceRepository = deviceRepository;
+        this.locationRepository = locationRepository;
+        this.referenceDataService = referenceDataService;
+        this.availabilityIndex = availabilityIndex;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    public ImportReport importCsv(InputStream input, Long createdByUserId) throws IOException {
+        long started = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV file is empty");
+        }
+        Map<String, Integer> columns = parseHeader(headerLine);
+
+        ImportState state = new ImportState(createdByUserId);
+        List<DeviceRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        String line;
+        int lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+            DeviceRow row = toRow(lineNumber, parseLine(line), columns, state);
+            if (row == null) continue;
+            chunk.add(row);
+            if (chunk.size() == CHUNK_SIZE) {
+                insertChunk(chunk, state);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, state);
+        }
+
+        log.info("Device import: {} created, {} failed in {} ms", state.created, state.errors.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        // Serial conflicts are only found per chunk, so restore file order
+        state.errors.sort(Comparator.comparingInt(RowError::line));
+        return new ImportReport(state.created, state.errors.size(), state.errors);
+    }
+
+    private static Map<String, Integer> parseHeader(String headerLine) {
+        // Excel adds a byte order mark to UTF-8 files
+        if (headerLine.startsWith("\uFEFF")) headerLine = headerLine.substring(1);
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = parseLine(headerLine);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header is missing column " + required);
+            }
+        }
+        return columns;
+    }
+
+    // Validates one data line and resolves its names to ids; errors are recorded and null is returned
+    private DeviceRow toRow(int line, List<String> values, Map<String, Integer> columns, ImportState state) {
+        String deviceName = value(values, columns, "device_name");
+        String serialNumber = value(values, columns, "serial_number");
+        String typeName = value(values, columns, "device_type");
+        String locationName = value(values, columns, "location");
+        String statusName = value(values, columns, "device_status");
+
+        String error = null;
+        Optional<DeviceType> type = Optional.empty();
+        Optional<DeviceStatus> status = Optional.empty();
+        Optional<Integer> locationId = Optional.empty();
+        if (deviceName == null || serialNumber == null || typeName == null || locationName == null) {
+            error = "Missing required fields";
+        } else if (deviceName.length() > MAX_NAME_LENGTH || serialNumber.length() > MAX_NAME_LENGTH) {
+            error = "device_name and serial_number may have at most " + MAX_NAME_LENGTH + " characters";
+        } else if ((type = referenceDataService.findDeviceTypeByName(typeName)).isEmpty()) {
+            error = "Unknown device type " + typeName;
+        } else if ((status = referenceDataService.findDeviceStatusByName(statusName != null ? statusName : DEFAULT_STATUS)).isEmpty()) {
+            error = "Unknown device status " + statusName;
+        } else if ((locationId = state.findLocationId(locationName)).isEmpty()) {
+            error = "Unknown location " + locationName;
+        } else if (!state.serialsInFile.add(serialKey(serialNumber))) {
+            error = "Serial number appears more than once in the file";
+        }
+        if (error != null) {
+            state.errors.add(new RowError(line, serialNumber, error));
+            return null;
+        }
+        return new DeviceRow(line, deviceName, serialNumber,
+                type.get().getDeviceTypeId(), status.get().getDeviceStatusId(), locationId.get());
+    }
+
+    private void insertChunk(List<DeviceRow> chunk, ImportState state) {
+        // One IN query for the whole chunk instead of relying on the unique key to fail row by row
+        List<String> serials = chunk.stream().map(DeviceRow::serialNumber).toList();
+        Set<String> existing = new HashSet<>();
+        deviceRepository.findExistingSerialNumbers(serials).forEach(serial -> existing.add(serialKey(serial)));
+
+        List<DeviceRow> rows = new ArrayList<>(chunk.size());
+        for (DeviceRow row : chunk) {
+            if (existing.contains(serialKey(row.serialNumber()))) {
+                state.errors.add(new RowError(row.line(), row.serialNumber(), "Serial number already exists"));
+            } else {
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) return;
+
+        try {
+            insert(rows, state.createdByUserId);
+            rows.forEach(row -> recordCreated(row, state));
+        } catch (DataIntegrityViolationException e) {
+            // The failed batch was rolled back, so each row can be retried on its own
+            for (DeviceRow row : rows) {
+                try {
+                    insert(List.of(row), state.createdByUserId);
+                    recordCreated(row, state);
+                } catch (DataIntegrityViolationException rowError) {
+                    state.errors.add(new RowError(row.line(), row.serialNumber(), rowErrorMessage(row.line(), rowError)));
+                }
+            }
+        }
+    }
+
+    // serial_number is device's only unique key. Other violations get a fixed message by SQLState
+    // (MySQL / H2 codes); the driver's text names tables, columns and constraints, so it only goes to the log.
+    private static String rowErrorMessage(int line, DataIntegrityViolationException e) {
+        if (e instanceof DuplicateKeyException) return "Serial number already exists";
+        log.warn("Device import line {} rejected by the database: {}", line, e.getMostSpecificCause().getMessage());
+        if (e.getMostSpecificCause() instanceof SQLException sqlError) {
+            String sqlState = sqlError.getSQLState() != null ? sqlError.getSQLState() : "";
+            int errorCode = sqlError.getErrorCode();
+            if (sqlState.equals("22001") || errorCode == MYSQL_DATA_TOO_LONG) {
+                return "A value is too long";
+            }
+            if (sqlState.equals("23506") || errorCode == MYSQL_FOREIGN_KEY || errorCode == MYSQL_FOREIGN_KEY_PARENT) {
+                return "Device type, status, location or creating user no longer exists";
+            }
+            if (sqlState.equals("23502") || errorCode == MYSQL_NOT_NULL) {
+                return "Missing required fields";
+            }
+        }
+        return "Row could not be saved";
+    }
+
+    // All rows or none: the driver may split a large batch into several statements
+    private void insert(List<DeviceRow> rows, Long createdByUserId) {
+        chunkTransaction.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+                    ps.setString(1, row.deviceName());
+                    ps.setString(2, row.serialNumber());
+                    ps.setInt(3, row.deviceTypeId());
+                    ps.setInt(4, row.deviceStatusId());
+                    ps.setInt(5, row.locationId());
+                    ps.setLong(6, createdByUserId);
+                }));
+    }
+
+    private void recordCreated(DeviceRow row, ImportState state) {
+        state.created++;
+        availabilityIndex.recordMove(null,
+                new AvailabilityIndex.Cell(row.locationId(), row.deviceTypeId(), row.deviceStatusId()));
+    }
+
+    // serial_number uses a case-insensitive collation, so "ab-1" and "AB-1" collide
+    private static String serialKey(String serialNumber) {
+        return serialNumber.toLowerCase(Locale.ROOT);
+    }
+
+    private static String value(List<String> values, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size()) return null;
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Splits one CSV line; fields may be quoted, with "" for a quote inside a quoted field
+    private static List<String> parseLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private class ImportState {
+        private final Long createdByUserId;
+        private final Set<String> serialsInFile = new HashSet<>();
+        private final Map<String, Optional<Integer>> locationIds = new HashMap<>();
+        private final List<RowError> errors = new ArrayList<>();
+        private int created;
+
+        ImportState(Long createdByUserId) {
+            this.createdByUserId = createdByUserId;
+        }
+
+        Optional<Integer> findLocationId(String name) {
+            return locationIds.computeIfAbsent(name.toLowerCase(Locale.ROOT),
+                    key -> Optional.ofNullable(locationRepository.findByLocationName(name)).map(Location::getLocationId));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.prototypesetup.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/*
+    Keeps the 'loan' row of id_generator ahead of the loan table (see Loan.loanId).
+    - The pooled generator hands out (next_value - 49) .. next_value for each block, so next_value must
+      be at least MAX(loan_id) + 50. Databases created before loan ids moved to the table generator have
+      no row, or one that starts below their existing AUTO_INCREMENT ids.
+    - Runs before the first request, after Hibernate has created or updated the schema: inserts the row
+      if it is missing and only ever raises next_value, so it is harmless on an up-to-date database and
+      while another instance is running.
+*/
+@Service
+public class IdGeneratorInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorInitializer.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO id_generator (generator_name, next_value) SELECT 'loan', COALESCE(MAX(loan_id), 0) + 50 FROM loan";
+
+    private static final String RAISE_SQL =
+            "UPDATE id_generator SET next_value = (SELECT COALESCE(MAX(loan_id), 0) + 50 FROM loan) " +
+            "WHERE generator_name = 'loan' AND next_value < (SELECT COALESCE(MAX(loan_id), 0) + 50 FROM loan)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The EntityManagerFactory is only a dependency so the schema exists before init() runs
+    public IdGeneratorInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        int inserted = 0;
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM id_generator WHERE generator_name = 'loan'", Integer.class);
+        if (rows == null || rows == 0) {
+            try {
+                inserted = jdbcTemplate.update(INSERT_SQL);
+            } catch (DuplicateKeyException e) {
+                // Another instance inserted it first; the update below still applies
+            }
+        }
+        int raised = jdbcTemplate.update(RAISE_SQL);
+        if (inserted > 0 || raised > 0) {
+            Long nextValue = jdbcTemplate.queryForObject(
+                    "SELECT next_value FROM id_generator WHERE generator_name = 'loan'", Long.class);
+            log.info("Loan id generator moved past the existing loans: next_value = {}", nextValue);
+        }
+    }
+}
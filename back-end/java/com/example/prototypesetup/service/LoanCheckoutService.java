@@ -0,0 +1,159 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.DeviceStatus;
+import com.example.prototypesetup.entity.Loan;
+import com.example.prototypesetup.repository.DeviceRepository;
+import com.example.prototypesetup.repository.DeviceRepository.AvailabilityCount;
+import com.example.prototypesetup.repository.LoanRepository;
+import com.example.prototypesetup.service.UsageStatsService.LoanUsage;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/*
+    Lending a bin means lending every device linked to it in bin_device.
+    - checkout() flips all of the bin's devices from Available to Loaned with one conditional UPDATE
+      and inserts the loan, in one transaction. If fewer devices were flipped than the bin holds, another
+      checkout got there first (or a device is in maintenance): the transaction rolls back and the caller
+      gets 409 right away, no locks are held across separate reads.
+    - reserveBins() is the batch variant: it locks each bin's devices (in bin id order, so concurrent
+      batches cannot deadlock) and only flips bins whose devices are all available, reporting the rest
+      instead of failing the whole batch.
+    - update() saves an edited loan and keeps the devices in step with it: an open loan holds its bin, so
+      returning it releases the bin (Loaned -> Available), reopening it reserves the bin again and moving
+      an open loan to another bin releases the old one and reserves the new one. A reservation that
+      fails rolls the whole edit back with 409, like checkout().
+    - delete() releases the bin of an open loan before deleting it, so its devices do not stay Loaned.
+    All of them also update the usage rollup (UsageStatsService) in the same transaction and report
+    the status change to AvailabilityIndex, which applies it after commit.
+*/
+@Service
+public class LoanCheckoutService {
+
+    private static final String AVAILABLE_STATUS = "Available";
+    private static final String LOANED_STATUS = "Loaned";
+    private static final String NO_DEVICES_MESSAGE = "Bin has no devices to lend";
+    private static final String BIN_TAKEN_MESSAGE = "Bin is already on loan or not all of its devices are available";
+
+    private final LoanRepository loanRepository;
+    private final DeviceRepository deviceRepository;
+    private final ReferenceDataService referenceDataService;
+    private final UsageStatsService usageStatsService;
+    private final AvailabilityIndex availabilityIndex;
+    private final ScanService scanService;
+
+    public LoanCheckoutService(LoanRepository loanRepository,
+                               DeviceRepository deviceRepository,
+                               ReferenceDataService referenceDataService,
+                               UsageStatsService usageStatsService,
+                               AvailabilityIndex availabilityIndex,
+                               ScanService scanService) {
+        this.loanRepository = loanRepository;
+        this.deviceRepository = deviceRepository;
+        this.referenceDataService = referenceDataService;
+        this.usageStatsService = usageStatsService;
+        this.availabilityIndex = availabilityIndex;
+        this.scanService = scanService;
+    }
+
+    @Transactional
+    public Loan checkout(Loan loan) {
+        reserveBin(loan.getBinId());
+        Loan saved = loanRepository.save(loan);
+        usageStatsService.recordCheckouts(List.of(saved));
+        return saved;
+    }
+
+    // Reserves the devices of each bin for a batch checkout running in the caller's transaction.
+    // Returns the bins that could not be reserved, with the reason.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Integer, String> reserveBins(Collection<Integer> binIds) {
+        Integer available = statusId(AVAILABLE_STATUS);
+        Integer loaned = statusId(LOANED_STATUS);
+        Map<Integer, String> failures = new HashMap<>();
+        for (Integer binId : new TreeSet<>(binIds)) {
+            List<AvailabilityCount> binDevices = deviceRepository.lockDevicesInBin(binId);
+            if (binDevices.isEmpty()) {
+                failures.put(binId, NO_DEVICES_MESSAGE);
+            } else if (binDevices.stream().anyMatch(device -> !available.equals(device.getDeviceStatusId()))) {
+                failures.put(binId, BIN_TAKEN_MESSAGE);
+            } else {
+                deviceRepository.updateStatusInBin(binId, available, loaned);
+                availabilityIndex.recordBinStatusChange(binDevices, available, loaned);
+                scanService.evictBin(binId);
+            }
+        }
+        return failures;
+    }
+
+    // before: the loan as it was read, ahead of the caller's changes
+    @Transactional
+    public Loan update(Loan loan, LoanUsage before) {
+        boolean sameBin = Objects.equals(before.binId(), loan.getBinId());
+        boolean holdsBin = loan.getReturnedAt() == null;
+        if (holdsBin && !(before.holdsBin() && sameBin)) {
+            reserveBin(loan.getBinId());
+        }
+        if (before.holdsBin() && !(holdsBin && sameBin)) {
+            releaseBin(before.binId());
+        }
+        Loan saved = loanRepository.save(loan);
+        usageStatsService.recordChange(before, LoanUsage.of(saved));
+        return saved;
+    }
+
+    @Transactional
+    public void delete(Loan loan) {
+        if (loan.getReturnedAt() == null) {
+            releaseBin(loan.getBinId());
+        }
+        usageStatsService.recordDeletion(loan);
+        loanRepository.delete(loan);
+    }
+
+    // Available -> Loaned for all of the bin's devices, or 409 if any of them is not available
+    private void reserveBin(Integer binId) {
+        Integer available = statusId(AVAILABLE_STATUS);
+        Integer loaned = statusId(LOANED_STATUS);
+        List<AvailabilityCount> binDevices = deviceRepository.countInBinByLocationTypeAndStatus(binId);
+        int devicesInBin = totalDevices(binDevices);
+        if (devicesInBin == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, NO_DEVICES_MESSAGE);
+        }
+        int reserved = deviceRepository.updateStatusInBin(binId, available, loaned);
+        if (reserved != devicesInBin) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, BIN_TAKEN_MESSAGE);
+        }
+        availabilityIndex.recordBinStatusChange(binDevices, available, loaned);
+        scanService.evictBin(binId);
+    }
+
+    // Loaned -> Available for the bin's devices
+    private void releaseBin(Integer binId) {
+        Integer available = statusId(AVAILABLE_STATUS);
+        Integer loaned = statusId(LOANED_STATUS);
+        List<AvailabilityCount> binDevices = deviceRepository.countInBinByLocationTypeAndStatus(binId);
+        deviceRepository.updateStatusInBin(binId, loaned, available);
+        availabilityIndex.recordBinStatusChange(binDevices, loaned, available);
+        scanService.evictBin(binId);
+    }
+
+    private static int totalDevices(List<AvailabilityCount> counts) {
+        return counts.stream().mapToInt(count -> count.getDevices().intValue()).sum();
+    }
+
+    private Integer statusId(String name) {
+        return referenceDataService.findDeviceStatusByName(name)
+                .map(DeviceStatus::getDeviceStatusId)
+                .orElseThrow(() -> new IllegalStateException("Missing device_status " + name));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.LoanActionType;
+import com.example.prototypesetup.entity.TransactionStatus;
+import com.example.prototypesetup.repository.LoanActionTypeRepository;
+import com.example.prototypesetup.repository.TransactionStatusRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Records checkouts, returns and status changes in loan_log without a synchronous insert per request.
+// The acting user is the authenticated caller (JWT subject); the writer thread maps it to app_user_id.
+@Service
+public class LoanLogWriter extends AsyncBatchWriter<LoanLogWriter.LoanLogEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanLogWriter.class);
+
+    private static final String SUCCESS_STATUS = "Success";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO loan_log (loan_id, app_user_id, loan_action_type_id, success_message, transaction_status_id, loan_timestamp) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Values of loan_action_type.loan_action_name
+    public enum LoanAction {
+        CHECKOUT("Checkout"),
+        RETURN("Return"),
+        STATUS_CHANGE("Status_Change");
+
+        private final String actionName;
+
+        LoanAction(String actionName) { this.actionName = actionName; }
+
+        public String getActionName() { return actionName; }
+    }
+
+    public record LoanLogEvent(Integer loanId, String subject, LoanAction action, String message, Timestamp occurredAt) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AppUserIdCache appUserIdCache;
+    private final LoanActionTypeRepository loanActionTypeRepository;
+    private final TransactionStatusRepository transactionStatusRepository;
+
+    // Lookup ids resolved on first use by the writer thread
+    private final Map<LoanAction, Integer> actionTypeIds = new ConcurrentHashMap<>();
+    private volatile Integer successStatusId;
+
+    public LoanLogWriter(JdbcTemplate jdbcTemplate,
+                         AppUserIdCache appUserIdCache,
+                         LoanActionTypeRepository loanActionTypeRepository,
+                         TransactionStatusRepository transactionStatusRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${loan-log.queue-capacity:10000}") int queueCapacity,
+                         @Value("${loan-log.batch-size:200}") int batchSize,
+                         @Value("${loan-log.offer-timeout-ms:5}") long offerTimeoutMs) {
+        super("loan_log", queueCapacity, batchSize, offerTimeoutMs, meterRegistry);
+        this.jdbcTemplate = jdbcTemplate;
+        this.appUserIdCache = appUserIdCache;
+        this.loanActionTypeRepository = loanActionTypeRepository;
+        this.transactionStatusRepository = transactionStatusRepository;
+    }
+
+    // Called on the request thread, which holds the caller's authentication
+    public void log(Integer loanId, LoanAction action, String message) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String subject = authentication != null ? authentication.getName() : null;
+        submit(new LoanLogEvent(loanId, subject, action, message, new Timestamp(System.currentTimeMillis())));
+    }
+
+    @Override
+    protected void writeBatch(List<LoanLogEvent> batch) {
+        // Every lookup happens here, before the batch holds its connection, so a row that cannot be
+        // resolved is skipped on its own instead of failing the batch halfway through
+        List<LoanLogEvent> rows = new ArrayList<>(batch.size());
+        List<Long> userIds = new ArrayList<>(batch.size());
+        List<Integer> rowActionTypeIds = new ArrayList<>(batch.size());
+        for (LoanLogEvent event : batch) {
+            Long userId = appUserIdCache.resolve(event.subject());
+            if (userId == null) {
+                // loan_log.app_user_id is NOT NULL, e.g. the account was deleted after the token was issued
+                log.warn("loan_log: no app_user for subject {}, skipped {}", event.subject(), event);
+                continue;
+            }
+            Integer actionTypeId = resolveActionTypeId(event.action());
+            if (actionTypeId == null) {
+                log.warn("loan_log: no loan_action_type {}, skipped {}", event.action().getActionName(), event);
+                continue;
+            }
+            rows.add(event);
+            userIds.add(userId);
+            rowActionTypeIds.add(actionTypeId);
+        }
+        if (rows.isEmpty()) return;
+
+        Integer statusId = resolveSuccessStatusId();
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                LoanLogEvent event = rows.get(i);
+                ps.setInt(1, event.loanId());
+                ps.setLong(2, userIds.get(i));
+                ps.setInt(3, rowActionTypeIds.get(i));
+                ps.setString(4, event.message());
+                ps.setInt(5, statusId);
+                ps.setTimestamp(6, event.occurredAt());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    // null if loan_action_type has no such row (a miss is not cached, so adding the row fixes it)
+    private Integer resolveActionTypeId(LoanAction action) {
+        return actionTypeIds.computeIfAbsent(action, a -> loanActionTypeRepository.findByLoanActionName(a.getActionName())
+                .map(LoanActionType::getLoanActionTypeId)
+                .orElse(null));
+    }
+
+    private Integer resolveSuccessStatusId() {
+        if (successStatusId == null) {
+            successStatusId = transactionStatusRepository.findByTransactionStatusName(SUCCESS_STATUS)
+                    .map(TransactionStatus::getTransactionStatusId)
+                    .orElseThrow(() -> new IllegalStateException("Missing transaction_status " + SUCCESS_STATUS));
+        }
+        return successStatusId;
+    }
+}
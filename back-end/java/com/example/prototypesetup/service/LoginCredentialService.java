@@ -0,0 +1,91 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.repository.AppUserRepository;
+import com.example.prototypesetup.repository.AppUserRepository.LoginCredentials;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Credential lookup for POST /api/auth/login.
+    - One indexed query on app_user.email returning only the user id, password hash, role name and
+      active flag (AppUserRepository.findLoginCredentials), instead of loading the AppUser entity.
+    - Emails that matched no account are remembered for login.unknown-email-ttl-ms in a bounded LRU
+      (login.unknown-email-cache-size entries), so a burst of logins for made-up addresses
+      (credential stuffing) is answered from memory instead of the database.
+    - AppUserController forgets an email as soon as a user is created with it or changed to it;
+      the TTL only matters for users inserted directly into the database.
+    Metric: login.unknown-email.requests{result=hit|miss}
+*/
+@Service
+public class LoginCredentialService {
+
+    private final AppUserRepository appUserRepository;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+
+    // email (lower case) -> System.nanoTime() after which the entry is ignored; guarded by "this", like generation
+    private final Map<String, Long> unknownEmails;
+    private long generation;
+
+    public LoginCredentialService(AppUserRepository appUserRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${login.unknown-email-ttl-ms:30000}") long ttlMs,
+                                  @Value("${login.unknown-email-cache-size:10000}") int cacheSize) {
+        this.appUserRepository = appUserRepository;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.hits = meterRegistry.counter("login.unknown-email.requests", "result", "hit");
+        this.misses = meterRegistry.counter("login.unknown-email.requests", "result", "miss");
+        this.unknownEmails = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public Optional<LoginCredentials> find(String email) {
+        if (email == null || email.isBlank()) return Optional.empty();
+        // email uses a case-insensitive collation
+        String key = email.trim().toLowerCase(Locale.ROOT);
+        long readGeneration;
+        synchronized (this) {
+            Long expiresAt = unknownEmails.get(key);
+            if (expiresAt != null) {
+                if (System.nanoTime() - expiresAt < 0) {
+                    hits.increment();
+                    return Optional.empty();
+                }
+                unknownEmails.remove(key);
+            }
+            readGeneration = generation;
+        }
+        misses.increment();
+
+        Optional<LoginCredentials> credentials = appUserRepository.findLoginCredentials(email.trim());
+        if (credentials.isEmpty()) {
+            synchronized (this) {
+                // Skipped when a user was created while we were reading
+                if (generation == readGeneration) unknownEmails.put(key, System.nanoTime() + ttlNanos);
+            }
+        }
+        return credentials;
+    }
+
+    // A user now exists with this email
+    public void forgetUnknownEmail(String email) {
+        if (email == null) return;
+        synchronized (this) {
+            generation++;
+            unknownEmails.remove(email.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.prototypesetup.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Token buckets in front of POST /api/auth/login, one per client IP and one per email, so a login
+    flood is turned away before it reaches the credential lookup and the Argon2 pool.
+    - A bucket holds up to "capacity" attempts and refills at "refill-per-minute". An attempt needs a
+      token from the IP bucket and then from the email bucket; otherwise the caller gets the time until
+      the next token, which login returns as 429 with Retry-After.
+    - Each key space is split into STRIPES small LRU maps with their own lock, so concurrent logins
+      rarely wait for each other. Memory is bounded by login.throttle.max-entries per key space: the
+      least recently used buckets are evicted first, and a bucket that has refilled completely is
+      dropped because it is the same as no bucket at all.
+    - The IP is the TCP peer address. X-Forwarded-For is not trusted since the API is not deployed
+      behind a proxy that sets it.
+    Metrics: login.throttled{key=ip|email}, login.throttle.entries
+*/
+@Service
+public class LoginThrottle {
+
+    private static final int STRIPES = 64;
+
+    private final KeySpace ipBuckets;
+    private final KeySpace emailBuckets;
+    private final Counter ipThrottled;
+    private final Counter emailThrottled;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${login.throttle.ip.capacity:30}") int ipCapacity,
+                         @Value("${login.throttle.ip.refill-per-minute:60}") int ipRefillPerMinute,
+                         @Value("${login.throttle.email.capacity:10}") int emailCapacity,
+                         @Value("${login.throttle.email.refill-per-minute:10}") int emailRefillPerMinute,
+                         @Value("${login.throttle.max-entries:50000}") int maxEntries) {
+        this.ipBuckets = new KeySpace(ipCapacity, ipRefillPerMinute, maxEntries);
+        this.emailBuckets = new KeySpace(emailCapacity, emailRefillPerMinute, maxEntries);
+        this.ipThrottled = meterRegistry.counter("login.throttled", "key", "ip");
+        this.emailThrottled = meterRegistry.counter("login.throttled", "key", "email");
+        Gauge.builder("login.throttle.entries", this, throttle -> throttle.ipBuckets.size() + throttle.emailBuckets.size())
+                .register(meterRegistry);
+    }
+
+    // 0 = the attempt may go ahead, otherwise the number of seconds to wait
+    public long tryAcquire(String ip, String email) {
+        long now = System.nanoTime();
+        if (ip != null) {
+            long waitNanos = ipBuckets.tryAcquire(ip, now);
+            if (waitNanos > 0) {
+                ipThrottled.increment();
+                return toRetryAfterSeconds(waitNanos);
+            }
+        }
+        if (email != null && !email.isBlank()) {
+            // email uses a case-insensitive collation
+            long waitNanos = emailBuckets.tryAcquire(email.trim().toLowerCase(Locale.ROOT), now);
+            if (waitNanos > 0) {
+                emailThrottled.increment();
+                return toRetryAfterSeconds(waitNanos);
+            }
+        }
+        return 0;
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static final class KeySpace {
+        private final double capacity;
+        private final double nanosPerToken;
+        private final Stripe[] stripes = new Stripe[STRIPES];
+
+        KeySpace(int capacity, int refillPerMinute, int maxEntries) {
+            this.capacity = Math.max(1, capacity);
+            this.nanosPerToken = (double) TimeUnit.MINUTES.toNanos(1) / Math.max(1, refillPerMinute);
+            int stripeSize = Math.max(1, maxEntries / STRIPES);
+            for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(stripeSize);
+        }
+
+        // 0 if a token was taken, otherwise the nanoseconds until the next one
+        long tryAcquire(String key, long now) {
+            Stripe stripe = stripes[Math.floorMod(key.hashCode() ^ (key.hashCode() >>> 16), STRIPES)];
+            synchronized (stripe) {
+                Bucket bucket = stripe.get(key);
+                if (bucket == null) {
+                    // A missing bucket is a full one
+                    stripe.put(key, new Bucket(capacity - 1, now));
+                    return 0;
+                }
+                bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.refilledAt) / nanosPerToken);
+                bucket.refilledAt = now;
+                if (bucket.tokens >= 1) {
+                    bucket.tokens -= 1;
+                    return 0;
+                }
+                return (long) Math.ceil((1 - bucket.tokens) * nanosPerToken);
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.size();
+                }
+            }
+            return size;
+        }
+
+        // An LRU map guarded by the Stripe's monitor
+        private final class Stripe {
+            private final Map<String, Bucket> buckets;
+
+            Stripe(int maxSize) {
+                this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                        if (size() > maxSize) return true;
+                        // Opportunistic cleanup: a bucket that has refilled completely carries no state
+                        Bucket bucket = eldest.getValue();
+                        return bucket.tokens + (System.nanoTime() - bucket.refilledAt) / nanosPerToken >= capacity;
+                    }
+                };
+            }
+
+            Bucket get(String key) {
+                return buckets.get(key);
+            }
+
+            void put(String key, Bucket bucket) {
+                buckets.put(key, bucket);
+            }
+
+            int size() {
+                return buckets.size();
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+}
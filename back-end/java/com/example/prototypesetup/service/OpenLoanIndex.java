@@ -0,0 +1,241 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.Loan;
+import com.example.prototypesetup.repository.LoanRepository;
+import com.example.prototypesetup.repository.LoanRepository.OpenLoanView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+    In-memory read model of the open loans (returned_at IS NULL), indexed by loan, bin and citizen,
+    so "is this bin out?" / "what does this citizen have?" never touch the loan table.
+    - Built from the database once the application is ready (and again by rebuild()).
+    - LoanController calls apply()/remove() after each write has committed. Entries carry the loan's
+      version: post-commit callbacks of two writes to one loan can run in either order, so a state
+      older than the one already applied is ignored. Returned and deleted loans leave a tombstone
+      with their version for the same reason. Applying a state the last rebuild already saw is harmless.
+    - The entry of a loan and its bin / citizen keys change together inside byLoanId.compute(), so two
+      updates of the same loan never interleave.
+    - rebuild() holds the write lock while it reads the table, so no update can slip in between
+      the snapshot and the swap and then be overwritten by it.
+    - The loan table stays authoritative: checkout still reserves devices in the database.
+*/
+@Service
+public class OpenLoanIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenLoanIndex.class);
+
+    private static final int TOMBSTONES = 10_000;
+    private static final long DELETED = Long.MAX_VALUE;
+
+    public record OpenLoan(Integer loanId, Integer binId, Long citizenId, long version) {
+        boolean sameKeys(OpenLoan other) {
+            return Objects.equals(binId, other.binId) && Objects.equals(citizenId, other.citizenId);
+        }
+    }
+
+    // Differences between the index and the loan table, by loan id
+    public record ConsistencyReport(int indexedLoans, int openLoansInDatabase,
+                                    List<Integer> missingFromIndex, List<Integer> notOpenInDatabase,
+                                    List<Integer> mismatched) {
+        public boolean isConsistent() {
+            return missingFromIndex.isEmpty() && notOpenInDatabase.isEmpty() && mismatched.isEmpty();
+        }
+    }
+
+    private final LoanRepository loanRepository;
+
+    private final Map<Integer, OpenLoan> byLoanId = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> loanIdsByBin = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Integer>> loanIdsByCitizen = new ConcurrentHashMap<>();
+    // Version at which recently returned / deleted loans left the index. Stale callbacks arrive within
+    // milliseconds, so keeping the last TOMBSTONES of them is plenty. Guarded by itself.
+    private final Map<Integer, Long> closedVersions = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+            return size() > TOMBSTONES;
+        }
+    };
+
+    // Updates share the read lock, rebuild() takes the write lock
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    public OpenLoanIndex(LoanRepository loanRepository) {
+        this.loanRepository = loanRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public int rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            List<OpenLoanView> openLoans = loanRepository.findOpenLoans();
+            byLoanId.clear();
+            loanIdsByBin.clear();
+            loanIdsByCitizen.clear();
+            openLoans.forEach(view -> add(new OpenLoan(view.getLoanId(), view.getBinId(), view.getCitizenId(),
+                    versionOf(view.getVersion()))));
+            log.info("Open loan index rebuilt with {} loans", byLoanId.size());
+            return byLoanId.size();
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    // Records the committed state of a loan: indexed while open, dropped once returned
+    public void apply(Loan loan) {
+        long version = versionOf(loan.getVersion());
+        OpenLoan next = loan.getReturnedAt() == null
+                ? new OpenLoan(loan.getLoanId(), loan.getBinId(), loan.getCitizenId(), version)
+                : null;
+        rebuildLock.readLock().lock();
+        try {
+            update(loan.getLoanId(), version, next);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public void applyAll(Collection<Loan> loans) {
+        loans.forEach(this::apply);
+    }
+
+    // The loan was deleted: no later state can bring it back
+    public void remove(Integer loanId) {
+        rebuildLock.readLock().lock();
+        try {
+            update(loanId, DELETED, null);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public Optional<OpenLoan> findByBin(Integer binId) {
+        // A bin can only be lent once at a time; several entries only show up for legacy data
+        return findByKey(loanIdsByBin, binId).stream().findFirst();
+    }
+
+    public boolean isBinOut(Integer binId) {
+        return loanIdsByBin.containsKey(binId);
+    }
+
+    public List<OpenLoan> findByCitizen(Long citizenId) {
+        return findByKey(loanIdsByCitizen, citizenId);
+    }
+
+    public int size() {
+        return byLoanId.size();
+    }
+
+    // Compares the index with a fresh read of the open loans. Writes that commit while the check runs
+    // can show up as short-lived differences, so only repeated differences indicate a real problem.
+    public ConsistencyReport checkConsistency() {
+        Map<Integer, OpenLoan> database = new HashMap<>();
+        for (OpenLoanView view : loanRepository.findOpenLoans()) {
+            database.put(view.getLoanId(), new OpenLoan(view.getLoanId(), view.getBinId(), view.getCitizenId(),
+                    versionOf(view.getVersion())));
+        }
+        Map<Integer, OpenLoan> indexed = new HashMap<>(byLoanId);
+
+        Set<Integer> missing = new TreeSet<>();
+        Set<Integer> mismatched = new TreeSet<>();
+        database.forEach((loanId, loan) -> {
+            OpenLoan entry = indexed.get(loanId);
+            if (entry == null) {
+                missing.add(loanId);
+            } else if (!entry.sameKeys(loan)) {
+                // Versions are not compared: the overdue job bumps them without going through the index
+                mismatched.add(loanId);
+            }
+        });
+        Set<Integer> notOpen = new TreeSet<>(indexed.keySet());
+        notOpen.removeAll(database.keySet());
+
+        return new ConsistencyReport(indexed.size(), database.size(),
+                new ArrayList<>(missing), new ArrayList<>(notOpen), new ArrayList<>(mismatched));
+    }
+
+    private <K> List<OpenLoan> findByKey(Map<K, Set<Integer>> index, K key) {
+        Set<Integer> loanIds = key != null ? index.get(key) : null;
+        if (loanIds == null) return Collections.emptyList();
+        List<OpenLoan> loans = new ArrayList<>(loanIds.size());
+        for (Integer loanId : loanIds) {
+            OpenLoan loan = byLoanId.get(loanId);
+            if (loan != null) loans.add(loan);
+        }
+        return loans;
+    }
+
+    private void add(OpenLoan loan) {
+        byLoanId.put(loan.loanId(), loan);
+        addKey(loanIdsByBin, loan.binId(), loan.loanId());
+        addKey(loanIdsByCitizen, loan.citizenId(), loan.loanId());
+    }
+
+    // Replaces the loan's entry with next (null = no longer open) unless the index already holds the
+    // state of this or a later version
+    private void update(Integer loanId, long version, OpenLoan next) {
+        byLoanId.compute(loanId, (id, current) -> {
+            long seen = Math.max(current != null ? current.version() : -1, closedVersion(id));
+            if (version <= seen) return current;
+            if (current != null) {
+                removeKey(loanIdsByBin, current.binId(), id);
+                removeKey(loanIdsByCitizen, current.citizenId(), id);
+            }
+            if (next == null) {
+                synchronized (closedVersions) {
+                    closedVersions.put(id, version);
+                }
+                return null;
+            }
+            addKey(loanIdsByBin, next.binId(), id);
+            addKey(loanIdsByCitizen, next.citizenId(), id);
+            return next;
+        });
+    }
+
+    private long closedVersion(Integer loanId) {
+        synchronized (closedVersions) {
+            return closedVersions.getOrDefault(loanId, -1L);
+        }
+    }
+
+    private static long versionOf(Long version) {
+        return version != null ? version : 0;
+    }
+
+    private static <K> void addKey(Map<K, Set<Integer>> index, K key, Integer loanId) {
+        if (key == null) return;
+        index.compute(key, (k, ids) -> {
+            Set<Integer> updated = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            updated.add(loanId);
+            return updated;
+        });
+    }
+
+    private static <K> void removeKey(Map<K, Set<Integer>> index, K key, Integer loanId) {
+        if (key == null) return;
+        // Drops the key once its last loan is gone, so containsKey() means "has an open loan"
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(loanId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.LoanStatus;
+import com.example.prototypesetup.repository.LoanRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+/*
+    Moves open loans past their due date to the "Overdue" loan_status.
+    Each run flips every open loan that is past due, whenever it fell due: loans whose due date was
+    moved back, or that were created or reopened with a due date in the past, are caught by the next run.
+    Flipped loans leave the "Open" part of the (loan_status_id, due_at) index, so the work per run
+    depends on how many loans fell due, not on the size of the loan table.
+*/
+@Service
+public class OverdueLoanService {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueLoanService.class);
+
+    private static final String OPEN_STATUS = "Open";
+    private static final String OVERDUE_STATUS = "Overdue";
+
+    private final LoanRepository loanRepository;
+    private final ReferenceDataService referenceDataService;
+
+    public OverdueLoanService(LoanRepository loanRepository, ReferenceDataService referenceDataService) {
+        this.loanRepository = loanRepository;
+        this.referenceDataService = referenceDataService;
+    }
+
+    @Scheduled(fixedDelayString = "${loans.overdue.check-interval-ms:300000}",
+               initialDelayString = "${loans.overdue.initial-delay-ms:60000}")
+    @Transactional
+    public int markOverdueLoans() {
+        long started = System.nanoTime();
+
+        Optional<LoanStatus> open = referenceDataService.findLoanStatusByName(OPEN_STATUS);
+        Optional<LoanStatus> overdue = referenceDataService.findLoanStatusByName(OVERDUE_STATUS);
+        if (open.isEmpty() || overdue.isEmpty()) {
+            log.warn("Overdue loan check skipped: loan_status '{}' or '{}' is missing", OPEN_STATUS, OVERDUE_STATUS);
+            return 0;
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int updated = loanRepository.markOverdue(open.get(), overdue.get(), now, now);
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        log.info("Overdue loan check: {} loans marked overdue (due before {}) in {} ms", updated, now, elapsedMs);
+        return updated;
+    }
+}
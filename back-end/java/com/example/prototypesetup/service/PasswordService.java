@@ -1,11 +1,46 @@
 package com.example.prototypesetup.service;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+    Argon2 hashing runs on its own small thread pool instead of the request threads.
+    - At most password.hash-threads hashes run at once, so a login burst uses a bounded amount of CPU
+      and Argon2 memory (threads x MEMORY_COST_KB) and the other endpoints keep their threads.
+    - Up to password.hash-queue-capacity calls wait for a free thread. A caller gives up after
+      password.hash-timeout-ms; when the queue is full or the wait times out, a 503 is thrown.
+    Metrics: password.hash.queue.wait, password.hash.duration{operation=hash|verify}, password.hash.queue.depth
+
+    Argon2 cost comes from password.argon2.* (the constants below are the defaults and the minimum).
+    With password.calibrate=true the cost is measured at startup instead: memory is doubled, then
+    iterations raised, for as long as one hash stays within password.calibrate.target-ms on this host.
+    Hashes stored with a lower memory or iteration cost are upgraded on the next successful login
+    (see needsRehash), so a node can be retuned without resetting passwords.
+*/
 @Service
 public class PasswordService {
 
+    public static final String BUSY_MESSAGE = "Too many sign-in requests right now, please try again in a moment";
+
     /*
         Argon2 parameters:
         saltLength: Length of the random salt (in bytes) added to each password
@@ -20,17 +55,139 @@ public class PasswordService {
     private static final int MEMORY_COST_KB = 4096;       // 4 MB, adjust to preference
     private static final int ITERATIONS = 3;              // Minimum recommended is 3
 
+    private static final Logger log = LoggerFactory.getLogger(PasswordService.class);
+    private static final int MAX_CALIBRATED_ITERATIONS = 20;
+    private static final int CALIBRATION_SAMPLES = 5;
+
     private final Argon2PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor hashExecutor;
+    private final long timeoutMs;
+
+    private final Timer queueWaitTimer;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
 
-    public PasswordService() {
-        this.passwordEncoder = new Argon2PasswordEncoder(SALT_LENGTH_BYTES,HASH_LENGTH_BYTES,PARALLELISM,MEMORY_COST_KB,ITERATIONS);
+    public PasswordService(MeterRegistry meterRegistry,
+                           @Value("${password.hash-threads:0}") int threads,
+                           @Value("${password.hash-queue-capacity:64}") int queueCapacity,
+                           @Value("${password.hash-timeout-ms:2000}") long timeoutMs,
+                           @Value("${password.argon2.memory-kb:" + MEMORY_COST_KB + "}") int memoryKb,
+                           @Value("${password.argon2.iterations:" + ITERATIONS + "}") int iterations,
+                           @Value("${password.argon2.parallelism:" + PARALLELISM + "}") int parallelism,
+                           @Value("${password.calibrate:false}") boolean calibrate,
+                           @Value("${password.calibrate.target-ms:50}") long calibrateTargetMs,
+                           @Value("${password.calibrate.max-memory-kb:65536}") int calibrateMaxMemoryKb) {
+        memoryKb = Math.max(memoryKb, MEMORY_COST_KB);
+        iterations = Math.max(iterations, ITERATIONS);
+        parallelism = Math.max(parallelism, PARALLELISM);
+        if (calibrate) {
+            int[] cost = calibrate(memoryKb, iterations, parallelism, calibrateTargetMs, calibrateMaxMemoryKb);
+            memoryKb = cost[0];
+            iterations = cost[1];
+        }
+        log.info("Argon2 cost: m={} KB, t={}, p={}", memoryKb, iterations, parallelism);
+        this.passwordEncoder = new Argon2PasswordEncoder(SALT_LENGTH_BYTES, HASH_LENGTH_BYTES, parallelism, memoryKb, iterations);
+        // 0 = one thread per CPU core
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.hashExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMs = timeoutMs;
+
+        this.queueWaitTimer = meterRegistry.timer("password.hash.queue.wait");
+        this.hashTimer = meterRegistry.timer("password.hash.duration", "operation", "hash");
+        this.verifyTimer = meterRegistry.timer("password.hash.duration", "operation", "verify");
+        Gauge.builder("password.hash.queue.depth", hashExecutor, executor -> executor.getQueue().size())
+                .register(meterRegistry);
     }
 
     public String hashPassword(String plainPassword) {
-        return passwordEncoder.encode(plainPassword);
+        return runOnHashPool(hashTimer, () -> passwordEncoder.encode(plainPassword));
     }
 
     public boolean verifyPassword(String plainPassword, String hashedPassword) {
-        return passwordEncoder.matches(plainPassword, hashedPassword);
+        return runOnHashPool(verifyTimer, () -> passwordEncoder.matches(plainPassword, hashedPassword));
+    }
+
+    // True when the hash was made with a lower memory or iteration cost than this node uses now
+    public boolean needsRehash(String hashedPassword) {
+        try {
+            return passwordEncoder.upgradeEncoding(hashedPassword);
+        } catch (IllegalArgumentException e) {
+            // Not an Argon2 hash this encoder can parse; matches() would have failed already
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdown();
+    }
+
+    // Returns {memoryKb, iterations}: the highest cost whose hash time stays within targetMs, never below the given floor
+    private static int[] calibrate(int memoryKb, int iterations, int parallelism, long targetMs, int maxMemoryKb) {
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMs);
+        measure(memoryKb, iterations, parallelism); // warm-up
+        long floorNanos = measure(memoryKb, iterations, parallelism);
+        if (floorNanos > targetNanos) {
+            log.warn("Argon2 calibration: the minimum cost already takes {} ms (target {} ms), keeping it",
+                    TimeUnit.NANOSECONDS.toMillis(floorNanos), targetMs);
+            return new int[] {memoryKb, iterations};
+        }
+        // Memory first: it is what makes guessing expensive on GPUs
+        while (memoryKb * 2 <= maxMemoryKb && measure(memoryKb * 2, iterations, parallelism) <= targetNanos) {
+            memoryKb *= 2;
+        }
+        while (iterations < MAX_CALIBRATED_ITERATIONS && measure(memoryKb, iterations + 1, parallelism) <= targetNanos) {
+            iterations++;
+        }
+        log.info("Argon2 calibration for a {} ms target: m={} KB, t={}", targetMs, memoryKb, iterations);
+        return new int[] {memoryKb, iterations};
+    }
+
+    // Fastest of a few hashes with the given cost: at startup the JIT is still warming up,
+    // so slower samples mostly measure the JVM, not the host
+    private static long measure(int memoryKb, int iterations, int parallelism) {
+        Argon2PasswordEncoder encoder = new Argon2PasswordEncoder(SALT_LENGTH_BYTES, HASH_LENGTH_BYTES, parallelism, memoryKb, iterations);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_SAMPLES; i++) {
+            long started = System.nanoTime();
+            encoder.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - started);
+        }
+        return fastest;
+    }
+
+    private <T> T runOnHashPool(Timer durationTimer, Callable<T> work) {
+        long submittedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = hashExecutor.submit(() -> {
+                long waited = System.nanoTime() - submittedAt;
+                queueWaitTimer.record(waited, TimeUnit.NANOSECONDS);
+                // The caller has already given up, don't spend the CPU
+                if (waited > TimeUnit.MILLISECONDS.toNanos(timeoutMs)) return null;
+                return durationTimer.recordCallable(work);
+            });
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+        }
+
+        try {
+            T value = result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            // null: the task started too late and skipped the work
+            if (value == null) throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+            return value;
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
     }
 }
@@ -0,0 +1,155 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.DeviceCondition;
+import com.example.prototypesetup.entity.DeviceStatus;
+import com.example.prototypesetup.entity.DeviceType;
+import com.example.prototypesetup.entity.LoanStatus;
+import com.example.prototypesetup.entity.UserRole;
+import com.example.prototypesetup.repository.DeviceConditionRepository;
+import com.example.prototypesetup.repository.DeviceStatusRepository;
+import com.example.prototypesetup.repository.DeviceTypeRepository;
+import com.example.prototypesetup.repository.LoanStatusRepository;
+import com.example.prototypesetup.repository.UserRoleRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/*
+    In-memory cache for the small lookup tables (loan_status, device_condition, device_type,
+    device_status, user_role) that are read on every write request.
+    - Preloaded once the application is ready and reloaded every reference-data.reload-interval-ms,
+      which picks up rows changed outside this application (SQL scripts, another instance).
+    - Read-through: an id that is not cached yet is loaded from the database and kept.
+    - Entries for a table must be evicted whenever this application writes it (see UserRoleController).
+*/
+@Service
+public class ReferenceDataService {
+
+    private final LoanStatusRepository loanStatusRepository;
+    private final DeviceConditionRepository deviceConditionRepository;
+    private final DeviceTypeRepository deviceTypeRepository;
+    private final DeviceStatusRepository deviceStatusRepository;
+    private final UserRoleRepository userRoleRepository;
+
+    private final Map<Integer, LoanStatus> loanStatuses = new ConcurrentHashMap<>();
+    private final Map<Integer, DeviceCondition> deviceConditions = new ConcurrentHashMap<>();
+    private final Map<Integer, DeviceType> deviceTypes = new ConcurrentHashMap<>();
+    private final Map<Integer, DeviceStatus> deviceStatuses = new ConcurrentHashMap<>();
+    private final Map<Long, UserRole> userRoles = new ConcurrentHashMap<>();
+
+    public ReferenceDataService(LoanStatusRepository loanStatusRepository,
+                                DeviceConditionRepository deviceConditionRepository,
+                                DeviceTypeRepository deviceTypeRepository,
+                                DeviceStatusRepository deviceStatusRepository,
+                                UserRoleRepository userRoleRepository) {
+        this.loanStatusRepository = loanStatusRepository;
+        this.deviceConditionRepository = deviceConditionRepository;
+        this.deviceTypeRepository = deviceTypeRepository;
+        this.deviceStatusRepository = deviceStatusRepository;
+        this.userRoleRepository = userRoleRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${reference-data.reload-interval-ms:600000}",
+               initialDelayString = "${reference-data.reload-interval-ms:600000}")
+    public void reloadAll() {
+        replace(loanStatuses, loanStatusRepository.findAll(), LoanStatus::getLoanStatusId);
+        replace(deviceConditions, deviceConditionRepository.findAll(), DeviceCondition::getDeviceConditionId);
+        replace(deviceTypes, deviceTypeRepository.findAll(), DeviceType::getDeviceTypeId);
+        replace(deviceStatuses, deviceStatusRepository.findAll(), DeviceStatus::getDeviceStatusId);
+        replace(userRoles, userRoleRepository.findAll(), UserRole::getRoleId);
+    }
+
+    public Optional<LoanStatus> findLoanStatus(Integer id) {
+        return readThrough(loanStatuses, id, loanStatusRepository::findById);
+    }
+
+    public Optional<LoanStatus> findLoanStatusByName(String name) {
+        for (LoanStatus status : loanStatuses.values()) {
+            if (status.getLoanStatusName().equalsIgnoreCase(name)) {
+                return Optional.of(status);
+            }
+        }
+        Optional<LoanStatus> loaded = loanStatusRepository.findByLoanStatusName(name);
+        loaded.ifPresent(status -> loanStatuses.put(status.getLoanStatusId(), status));
+        return loaded;
+    }
+
+    public Optional<DeviceCondition> findDeviceCondition(Integer id) {
+        return readThrough(deviceConditions, id, deviceConditionRepository::findById);
+    }
+
+    public Optional<DeviceType> findDeviceType(Integer id) {
+        return readThrough(deviceTypes, id, deviceTypeRepository::findById);
+    }
+
+    public Optional<DeviceType> findDeviceTypeByName(String name) {
+        for (DeviceType type : deviceTypes.values()) {
+            if (type.getDeviceTypeName().equalsIgnoreCase(name)) {
+                return Optional.of(type);
+            }
+        }
+        Optional<DeviceType> loaded = deviceTypeRepository.findByDeviceTypeName(name);
+        loaded.ifPresent(type -> deviceTypes.put(type.getDeviceTypeId(), type));
+        return loaded;
+    }
+
+    public Optional<DeviceStatus> findDeviceStatus(Integer id) {
+        return readThrough(deviceStatuses, id, deviceStatusRepository::findById);
+    }
+
+    public Optional<DeviceStatus> findDeviceStatusByName(String name) {
+        for (DeviceStatus status : deviceStatuses.values()) {
+            if (status.getStatusName().equalsIgnoreCase(name)) {
+                return Optional.of(status);
+            }
+        }
+        Optional<DeviceStatus> loaded = deviceStatusRepository.findByStatusName(name);
+        loaded.ifPresent(status -> deviceStatuses.put(status.getDeviceStatusId(), status));
+        return loaded;
+    }
+
+    public Optional<UserRole> findUserRole(Long id) {
+        return readThrough(userRoles, id, userRoleRepository::findById);
+    }
+
+    public void evictUserRole(Long id) {
+        if (id != null) {
+            userRoles.remove(id);
+        }
+    }
+
+    // Overwrites the cached rows and drops deleted ones without emptying the map first,
+    // so lookups running during a reload keep hitting the cache
+    private static <K, V> void replace(Map<K, V> cache, List<V> rows, Function<V, K> idOf) {
+        Set<K> ids = new HashSet<>();
+        for (V row : rows) {
+            K id = idOf.apply(row);
+            ids.add(id);
+            cache.put(id, row);
+        }
+        cache.keySet().retainAll(ids);
+    }
+
+    private static <K, V> Optional<V> readThrough(Map<K, V> cache, K id, Function<K, Optional<V>> loader) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        V cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<V> loaded = loader.apply(id);
+        loaded.ifPresent(value -> cache.put(id, value));
+        return loaded;
+    }
+}
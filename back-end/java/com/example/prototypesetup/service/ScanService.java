@@ -0,0 +1,145 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.Bin;
+import com.example.prototypesetup.repository.BinRepository;
+import com.example.prototypesetup.repository.DeviceRepository;
+import com.example.prototypesetup.repository.DeviceRepository.DeviceSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/*
+    Resolves a scanned code (GET /api/scan/{code}) to a device by serial_number or to a bin by
+    asset_tag, both through their unique indexes.
+    - Resolved codes are kept in a bounded LRU cache (scan.cache-size entries), so repeated scans
+      at the counter are answered from memory. Unknown codes are not cached, which keeps newly
+      created or imported devices visible right away.
+    - Writes that change a device or a bin evict the affected entries after commit. A generation
+      number makes sure a lookup that read the database before such a commit cannot put its stale
+      result back afterwards.
+    - The open loan is not cached: callers read it from OpenLoanIndex on every scan.
+    Metric: scan.cache.requests{result=hit|miss}
+*/
+@Service
+public class ScanService {
+
+    public record ScannedDevice(DeviceSummary device, Integer binId) {}
+
+    // Exactly one of device / bin is set. The bin comes with its location and devices fetched.
+    public record ScanResult(ScannedDevice device, Bin bin) {
+
+        boolean concernsDevice(Long deviceId) {
+            if (device != null) return deviceId.equals(device.device().getDeviceId());
+            return bin.getDevices().stream().anyMatch(d -> deviceId.equals(d.getDeviceId()));
+        }
+
+        boolean concernsBin(Integer binId) {
+            return binId.equals(device != null ? device.binId() : bin.getBinId());
+        }
+    }
+
+    private final DeviceRepository deviceRepository;
+    private final BinRepository binRepository;
+    private final Counter hits;
+    private final Counter misses;
+
+    // Guarded by "this", like generation
+    private final Map<String, ScanResult> cache;
+    private long generation;
+
+    public ScanService(DeviceRepository deviceRepository,
+                       BinRepository binRepository,
+                       MeterRegistry meterRegistry,
+                       @Value("${scan.cache-size:2000}") int cacheSize) {
+        this.deviceRepository = deviceRepository;
+        this.binRepository = binRepository;
+        this.hits = meterRegistry.counter("scan.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("scan.cache.requests", "result", "miss");
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ScanResult> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // A device serial number wins over a bin asset tag with the same text
+    public Optional<ScanResult> resolve(String code) {
+        // serial_number and asset_tag use a case-insensitive collation
+        String key = code.trim().toLowerCase(Locale.ROOT);
+        long readGeneration;
+        synchronized (this) {
+            ScanResult cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            readGeneration = generation;
+        }
+        misses.increment();
+
+        Optional<ScanResult> result = load(code.trim());
+        result.ifPresent(found -> {
+            synchronized (this) {
+                // Skipped when a write was evicted while we were reading
+                if (generation == readGeneration) cache.put(key, found);
+            }
+        });
+        return result;
+    }
+
+    // The device's name, serial, type, status, location or bin changed, or it was deleted
+    public void evictDevice(Long deviceId) {
+        evictAfterCommit(result -> result.concernsDevice(deviceId));
+    }
+
+    // The bin or the status of its devices changed (checkout / return), or it was deleted
+    public void evictBin(Integer binId) {
+        evictAfterCommit(result -> result.concernsBin(binId));
+    }
+
+    public synchronized void clear() {
+        generation++;
+        cache.clear();
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    private Optional<ScanResult> load(String code) {
+        Optional<DeviceSummary> device = deviceRepository.findSummaryBySerialNumber(code);
+        if (device.isPresent()) {
+            Integer binId = binRepository.findBinIdByDeviceId(device.get().getDeviceId()).orElse(null);
+            return Optional.of(new ScanResult(new ScannedDevice(device.get(), binId), null));
+        }
+        return binRepository.findInventoryByAssetTag(code).map(bin -> new ScanResult(null, bin));
+    }
+
+    private void evictAfterCommit(Predicate<ScanResult> affected) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(affected);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(affected);
+            }
+        });
+    }
+
+    private synchronized void evict(Predicate<ScanResult> affected) {
+        generation++;
+        cache.values().removeIf(affected);
+    }
+}
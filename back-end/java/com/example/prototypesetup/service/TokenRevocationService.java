@@ -0,0 +1,180 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.RevokedToken;
+import com.example.prototypesetup.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Revoked JWT ids (jti), checked on every authenticated request (see SecurityConfig.jwtDecoder).
+    - The check never reads the database: a Bloom filter answers "not revoked" for almost every token
+      without touching the set, and only its rare positives (revoked tokens plus ~1% false positives)
+      are confirmed in the in-memory map of revoked ids.
+    - revoke() (logout) adds the id in memory first and then to the revoked_token table, so
+      revocations survive a restart: the live rows are loaded at startup.
+    - prune() runs every tokens.revocation.prune-interval-ms: it deletes rows whose token has expired,
+      drops them from memory, picks up rows written by other instances and rebuilds the filter,
+      since a Bloom filter cannot remove entries.
+    - Tokens issued without a jti (before ids were added) cannot be revoked and simply expire.
+    Metrics: tokens.revoked (gauge), tokens.revoked.rejected
+*/
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int expectedRevocations;
+    private final Counter rejectedCounter;
+
+    // jti -> token expiry. Writers (revoke, prune) hold writeLock so no id misses the rebuilt filter.
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile BloomFilter filter;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${tokens.revocation.expected-revocations:10000}") int expectedRevocations) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+        this.rejectedCounter = meterRegistry.counter("tokens.revoked.rejected");
+        Gauge.builder("tokens.revoked", revoked, Map::size).register(meterRegistry);
+    }
+
+    // Before the first request: a revoked token must not work again after a restart
+    @PostConstruct
+    public void load() {
+        List<RevokedToken> live = revokedTokenRepository.findByExpiresAtAfter(Instant.now());
+        synchronized (writeLock) {
+            live.forEach(token -> revoked.put(token.getJti(), token.getExpiresAt()));
+            rebuildFilter();
+        }
+        log.info("Loaded {} revoked tokens", live.size());
+    }
+
+    public boolean isRevoked(Jwt jwt) {
+        String jti = jwt.getId();
+        if (jti == null || !filter.mightContain(jti)) return false;
+        if (!revoked.containsKey(jti)) return false; // false positive
+        rejectedCounter.increment();
+        return true;
+    }
+
+    public void revoke(Jwt jwt) {
+        String jti = jwt.getId();
+        Instant expiresAt = jwt.getExpiresAt();
+        // Nothing to do for tokens without an id or already expired
+        if (jti == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) return;
+
+        synchronized (writeLock) {
+            revoked.put(jti, expiresAt);
+            filter.add(jti);
+        }
+        try {
+            revokedTokenRepository.save(new RevokedToken(jti, expiresAt, Instant.now()));
+        } catch (RuntimeException e) {
+            // Still revoked on this instance until the token expires, only a restart would forget it
+            log.error("Could not store revoked token {}", jti, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tokens.revocation.prune-interval-ms:60000}",
+               initialDelayString = "${tokens.revocation.prune-interval-ms:60000}")
+    public void prune() {
+        Instant now = Instant.now();
+        List<RevokedToken> live = null;
+        try {
+            revokedTokenRepository.deleteExpired(now);
+            live = revokedTokenRepository.findByExpiresAtAfter(now);
+        } catch (RuntimeException e) {
+            log.warn("Could not prune the revoked_token table", e);
+        }
+        synchronized (writeLock) {
+            revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+            if (live != null) live.forEach(token -> revoked.putIfAbsent(token.getJti(), token.getExpiresAt()));
+            rebuildFilter();
+        }
+    }
+
+    // Called with writeLock held
+    private void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+    }
+
+    // Fixed-size Bloom filter; add() may run concurrently with mightContain()
+    private static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            long m = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((Math.max(m, 64) + 63) / 64));
+            this.bitCount = bits.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+        }
+
+        void add(String value) {
+            long hash1 = hash(value);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash1 = hash(value);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a, then mixed so that similar ids spread over the whole array
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        private static long mix(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
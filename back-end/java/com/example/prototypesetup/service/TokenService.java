@@ -2,6 +2,7 @@ package com.example.prototypesetup.service;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.security.core.Authentication;
@@ -35,6 +36,7 @@ public class TokenService {
                 .issuedAt(now)
                 .expiresAt(now.plus(TOKEN_EXPIRATION_MINUTES, ChronoUnit.MINUTES))
                 .subject(authentication.getName())
+                .id(UUID.randomUUID().toString()) // jti, so the token can be revoked at logout
                 .claim("scope", scope)
                 .build();
         return this.encoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
@@ -0,0 +1,112 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.Loan;
+import com.example.prototypesetup.entity.LoanUsageRollup;
+import com.example.prototypesetup.repository.LoanUsageRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+    Maintains loan_usage_rollup, the per (month, location, device type) counters behind GET /api/stats/usage.
+    - recordCheckouts()/recordChange()/recordDeletion() must run inside the transaction that writes the
+      loan, so the counters commit or roll back together with it (Propagation.MANDATORY enforces this).
+    - rebuild() recomputes every bucket from loan + bin_device to repair drift, e.g. after loans were
+      edited directly in the database.
+*/
+@Service
+public class UsageStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(UsageStatsService.class);
+
+    // What a loan contributes to the rollup: a checkout in its start month, a return in its return month
+    public record LoanUsage(Integer binId, Timestamp startAt, Timestamp returnedAt) {
+        public static LoanUsage of(Loan loan) {
+            return new LoanUsage(loan.getBinId(), loan.getStartAt(), loan.getReturnedAt());
+        }
+
+        // An open loan keeps its bin's devices Loaned
+        public boolean holdsBin() {
+            return returnedAt == null;
+        }
+    }
+
+    private final LoanUsageRollupRepository rollupRepository;
+
+    public UsageStatsService(LoanUsageRollupRepository rollupRepository) {
+        this.rollupRepository = rollupRepository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCheckouts(Collection<Loan> loans) {
+        // One upsert per (bin, month) instead of one per loan, for batch checkouts of the same bin
+        Map<BinMonth, Integer> counts = new HashMap<>();
+        for (Loan loan : loans) {
+            counts.merge(new BinMonth(loan.getBinId(), monthOf(loan.getStartAt())), 1, Integer::sum);
+        }
+        counts.forEach((key, count) -> rollupRepository.addBinUsage(key.month(), key.binId(), count, 0));
+    }
+
+    // A loan was returned, reopened, moved to another bin or had its dates changed: its checkout and
+    // return move to the buckets rebuild() would now count them in. after == null: the loan was deleted.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChange(LoanUsage before, LoanUsage after) {
+        BinMonth checkoutBefore = new BinMonth(before.binId(), monthOf(before.startAt()));
+        BinMonth checkoutAfter = after != null ? new BinMonth(after.binId(), monthOf(after.startAt())) : null;
+        if (!checkoutBefore.equals(checkoutAfter)) {
+            rollupRepository.addBinUsage(checkoutBefore.month(), checkoutBefore.binId(), -1, 0);
+            if (checkoutAfter != null) rollupRepository.addBinUsage(checkoutAfter.month(), checkoutAfter.binId(), 1, 0);
+        }
+        BinMonth returnBefore = returnOf(before);
+        BinMonth returnAfter = returnOf(after);
+        if (!Objects.equals(returnBefore, returnAfter)) {
+            if (returnBefore != null) rollupRepository.addBinUsage(returnBefore.month(), returnBefore.binId(), 0, -1);
+            if (returnAfter != null) rollupRepository.addBinUsage(returnAfter.month(), returnAfter.binId(), 0, 1);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeletion(Loan loan) {
+        recordChange(LoanUsage.of(loan), null);
+    }
+
+    @Transactional
+    public int rebuild() {
+        long started = System.nanoTime();
+        rollupRepository.deleteAllInBatch();
+        int checkoutRows = rollupRepository.rebuildCheckouts();
+        rollupRepository.rebuildReturns();
+        int buckets = (int) rollupRepository.count();
+        log.info("Rebuilt loan_usage_rollup: {} buckets ({} from checkouts) in {} ms",
+                buckets, checkoutRows, (System.nanoTime() - started) / 1_000_000);
+        return buckets;
+    }
+
+    @Transactional(readOnly = true)
+    public List<LoanUsageRollup> findBuckets(YearMonth from, YearMonth to, Integer locationId) {
+        return rollupRepository.findBuckets(from.atDay(1), to.atDay(1), locationId);
+    }
+
+    private static LocalDate monthOf(Timestamp timestamp) {
+        Objects.requireNonNull(timestamp, "timestamp");
+        return timestamp.toLocalDateTime().toLocalDate().withDayOfMonth(1);
+    }
+
+    private static BinMonth returnOf(LoanUsage usage) {
+        if (usage == null || usage.returnedAt() == null) return null;
+        return new BinMonth(usage.binId(), monthOf(usage.returnedAt()));
+    }
+
+    private record BinMonth(Integer binId, LocalDate month) {}
+}
@@ -0,0 +1,306 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.AppUser;
+import com.example.prototypesetup.repository.AppUserRepository;
+import com.example.prototypesetup.repository.AppUserRepository.UserSearchRow;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+    In-memory trigram index over app_user full_name, email and contact_number, served by
+    GET /api/app-users/search without reading the database.
+    - Text is lower-cased, accents are stripped and it is split into words; every word is indexed by
+      its trigrams ("  jane " -> "  j", " ja", "jan", "ane", "ne "). The phone number is also indexed
+      as one run of digits, so "5551234" finds "407-555-1234".
+    - A search scores each user by the share of the query's trigrams found in that user's text, so
+      partial words and typos still match. Ties go to the user with less extra text. Only the best
+      "limit" results with a score of at least MIN_SCORE are returned.
+    - Built with one query once the application is ready. AppUserController reports creates, updates
+      and deletes. A changed or deleted user leaves a dead slot behind; the index is rebuilt in memory
+      when they make up a quarter of it.
+    - Admin and Employee accounts are indexed too (Admins search every user), but citizensOnly
+      searches skip them before ranking, so Employees only ever see citizens' contact data.
+    Metrics: users.search.duration, users.search.index.size
+*/
+@Service
+public class UserSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    public static final double MIN_SCORE = 0.3;
+    public static final String CITIZEN_ROLE = "Citizen";
+
+    public record UserEntry(Long userId, String fullName, String email, String contactNumber, String roleName) {}
+
+    public record Match(UserEntry user, double score) {}
+
+    private final AppUserRepository appUserRepository;
+    private final Timer searchTimer;
+
+    // Guarded by lock. slots[i] == null is a dead slot; postings hold slot numbers in ascending order.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<UserEntry> slots = new ArrayList<>();
+    private final IntList trigramCounts = new IntList();
+    private final Map<Long, Integer> slotByUserId = new HashMap<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private int deadSlots;
+
+    public UserSearchIndex(AppUserRepository appUserRepository, MeterRegistry meterRegistry) {
+        this.appUserRepository = appUserRepository;
+        this.searchTimer = meterRegistry.timer("users.search.duration");
+        Gauge.builder("users.search.index.size", this, UserSearchIndex::size).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        // Writes wait while the table is read, so no create or delete lands between the read and the swap
+        List<UserSearchRow> rows;
+        lock.writeLock().lock();
+        try {
+            rows = appUserRepository.findAllForSearch();
+            clear();
+            rows.forEach(row -> add(new UserEntry(row.getUserId(), row.getFullName(), row.getEmail(),
+                    row.getContactNumber(), row.getRoleName())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("User search index: {} users in {} ms", rows.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // The user was created or changed
+    public void put(AppUser user) {
+        UserEntry entry = new UserEntry(user.getUserId(), user.getFullName(), user.getEmail(), user.getContactNumber(),
+                user.getRole() != null ? user.getRole().getRoleName() : null);
+        lock.writeLock().lock();
+        try {
+            kill(user.getUserId());
+            add(entry);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            kill(userId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Match> search(String query, int limit, boolean citizensOnly) {
+        long started = System.nanoTime();
+        long[] queryTrigrams = trigrams(query);
+        if (queryTrigrams.length == 0) return List.of();
+        int queryCount = queryTrigrams.length;
+        // Fewest shared trigrams a user needs to reach MIN_SCORE
+        int needed = Math.max(1, (int) Math.ceil(MIN_SCORE * queryCount - 1e-9));
+
+        // Lowest score first, so the weakest of the best "limit" matches is the one replaced
+        PriorityQueue<Match> best = new PriorityQueue<>(Comparator.comparingDouble(Match::score)
+                .thenComparing(match -> -match.user().userId()));
+        lock.readLock().lock();
+        try {
+            List<IntList> lists = new ArrayList<>(queryCount);
+            for (long trigram : queryTrigrams) {
+                IntList posting = postings.get(trigram);
+                if (posting != null) lists.add(posting);
+            }
+            if (lists.size() < needed) return List.of();
+            // A user missing from all of the rarest (lists - needed + 1) lists cannot reach "needed",
+            // so only those lists add candidates; the common ones just add to their counts
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            int candidateLists = lists.size() - needed + 1;
+
+            // shared[slot] = number of query trigrams found in that user's text
+            int[] shared = new int[slots.size()];
+            IntList touched = new IntList();
+            for (int l = 0; l < lists.size(); l++) {
+                IntList posting = lists.get(l);
+                boolean addsCandidates = l < candidateLists;
+                for (int i = 0; i < posting.size; i++) {
+                    int slot = posting.values[i];
+                    if (shared[slot] > 0) {
+                        shared[slot]++;
+                    } else if (addsCandidates) {
+                        shared[slot] = 1;
+                        touched.add(slot);
+                    }
+                }
+            }
+            for (int i = 0; i < touched.size; i++) {
+                int slot = touched.values[i];
+                if (shared[slot] < needed) continue;
+                UserEntry user = slots.get(slot);
+                if (user == null || (citizensOnly && !CITIZEN_ROLE.equals(user.roleName()))) continue;
+                // Tie-breaker below the query's resolution: favours users with fewer unmatched trigrams
+                int userCount = trigramCounts.values[slot];
+                double extra = (double) (userCount - shared[slot]) / userCount;
+                double score = (double) shared[slot] / queryCount - extra / (queryCount * 10.0);
+                if (best.size() < limit) {
+                    best.add(new Match(user, score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Match(user, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Match::score).reversed()
+                .thenComparing(match -> match.user().userId()));
+        searchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByUserId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Called with the write lock held
+    private void add(UserEntry user) {
+        long[] userTrigrams = trigrams(user.fullName(), user.email(), user.contactNumber());
+        int slot = slots.size();
+        slots.add(user);
+        trigramCounts.add(Math.max(1, userTrigrams.length));
+        slotByUserId.put(user.userId(), slot);
+        for (long trigram : userTrigrams) {
+            postings.computeIfAbsent(trigram, key -> new IntList()).add(slot);
+        }
+    }
+
+    // Called with the write lock held
+    private void kill(Long userId) {
+        Integer slot = slotByUserId.remove(userId);
+        if (slot != null) {
+            slots.set(slot, null);
+            deadSlots++;
+        }
+    }
+
+    // Called with the write lock held
+    private void compactIfNeeded() {
+        if (deadSlots < 1024 || deadSlots * 4 < slots.size()) return;
+        List<UserEntry> live = slots.stream().filter(user -> user != null).toList();
+        clear();
+        live.forEach(this::add);
+    }
+
+    private void clear() {
+        slots.clear();
+        trigramCounts.size = 0;
+        slotByUserId.clear();
+        postings.clear();
+        deadSlots = 0;
+    }
+
+    // Distinct trigrams of the words in the given texts, sorted
+    static long[] trigrams(String... texts) {
+        long[] result = new long[64];
+        int count = 0;
+        StringBuilder word = new StringBuilder();
+        StringBuilder digits = new StringBuilder();
+        for (String text : texts) {
+            if (text == null) continue;
+            String normalized = normalize(text);
+            digits.setLength(0);
+            int wordCount = 0;
+            boolean allDigits = true;
+            for (int i = 0; i <= normalized.length(); i++) {
+                char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+                if (Character.isLetterOrDigit(c)) {
+                    word.append(c);
+                    allDigits &= Character.isDigit(c);
+                    continue;
+                }
+                if (word.isEmpty()) continue;
+                wordCount++;
+                if (allDigits) digits.append(word);
+                result = ensureRoom(result, count, word.length() + 1);
+                count = addWordTrigrams(word, result, count);
+                word.setLength(0);
+                allDigits = true;
+            }
+            // Phone numbers: also as one run of digits, whatever the separators
+            if (wordCount > 1 && digits.length() >= 3) {
+                result = ensureRoom(result, count, digits.length() + 1);
+                count = addWordTrigrams(digits, result, count);
+            }
+        }
+        Arrays.sort(result, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || result[distinct - 1] != result[i]) result[distinct++] = result[i];
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    // Lower case without accents; the Normalizer only runs for non-ASCII text
+    private static String normalize(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return Normalizer.normalize(text, Normalizer.Form.NFD)
+                        .replaceAll("\\p{M}", "")
+                        .toLowerCase(Locale.ROOT);
+            }
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static long[] ensureRoom(long[] values, int count, int more) {
+        return count + more <= values.length ? values : Arrays.copyOf(values, Math.max(values.length * 2, count + more));
+    }
+
+    // "  " + word + " ": a word of n characters has n + 1 trigrams
+    private static int addWordTrigrams(CharSequence word, long[] result, int count) {
+        char a = ' ', b = ' ';
+        for (int i = 0; i <= word.length(); i++) {
+            char c = i < word.length() ? word.charAt(i) : ' ';
+            result[count++] = ((long) a << 32) | ((long) b << 16) | c;
+            a = b;
+            b = c;
+        }
+        return count;
+    }
+
+    // Growable int array: a posting list of 100k users costs 400 KB instead of 100k Integer objects
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.service.TokenService;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+    Device listings go through the DeviceSummary projection: one SELECT per page, whatever the page size
+    and filters. Without paging parameters the endpoint still answers with one page of DEFAULT_PAGE_SIZE.
+*/
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DeviceControllerQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Cookie employeeToken;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        employeeToken = new Cookie("jwt-token", tokenService.generateToken(new UsernamePasswordAuthenticationToken(
+                "emp@example.com", null, List.of(new SimpleGrantedAuthority("Employee")))));
+    }
+
+    @Test
+    void getAllDevicesReturnsOnePageInOneStatement() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/devices").cookie(employeeToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(3))
+                .andExpect(jsonPath("$.data[0].location.locationName").exists())
+                .andExpect(jsonPath("$.has_more").value(false))
+                .andExpect(jsonPath("$.next_cursor").doesNotExist());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllDevicesWithFiltersAndCursorRunsOneStatement() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/devices").cookie(employeeToken).param("typeId", "1").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].deviceId").value(1))
+                .andExpect(jsonPath("$.next_cursor").value(1))
+                .andExpect(jsonPath("$.has_more").value(true));
+        mockMvc.perform(get("/api/devices").cookie(employeeToken).param("typeId", "1").param("cursor", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].deviceId").value(3))
+                .andExpect(jsonPath("$.has_more").value(false));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getDevicesByPageNumberRunsOneStatement() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/devices").cookie(employeeToken).param("page", "1").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].deviceId").value(3))
+                .andExpect(jsonPath("$.has_more").value(false));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.service.TokenService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+    A bin is lent at most once: checkouts that race for the same bin get one 201 and 409 for the rest,
+    and the bin's devices follow the loan through returns, reopens, bin changes and deletes.
+    Every loan created here is deleted again, so the seeded data is unchanged for the other tests.
+*/
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class LoanCheckoutConcurrencyTest {
+
+    private static final int AVAILABLE = 1;
+    private static final int LOANED = 2;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Cookie employeeToken;
+    private final List<Integer> createdLoans = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        employeeToken = new Cookie("jwt-token", tokenService.generateToken(new UsernamePasswordAuthenticationToken(
+                "emp@example.com", null, List.of(new SimpleGrantedAuthority("Employee")))));
+    }
+
+    @AfterEach
+    void deleteCreatedLoans() throws Exception {
+        for (Integer loanId : createdLoans) {
+            mockMvc.perform(delete("/api/loans/" + loanId).cookie(employeeToken)).andExpect(status().isOk());
+        }
+        assertThat(deviceStatus(1)).isEqualTo(AVAILABLE);
+        assertThat(deviceStatus(2)).isEqualTo(AVAILABLE);
+        assertThat(deviceStatus(3)).isEqualTo(AVAILABLE);
+    }
+
+    @Test
+    void concurrentCheckoutsOfOneBinLendItOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MvcResult>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/loans").cookie(employeeToken)
+                            .contentType(MediaType.APPLICATION_JSON).content(checkoutBody(1))).andReturn();
+                }));
+            }
+            start.countDown();
+            int created = 0;
+            int conflicts = 0;
+            for (Future<MvcResult> result : results) {
+                MvcResult response = result.get();
+                if (response.getResponse().getStatus() == 201) {
+                    created++;
+                    createdLoans.add(loanId(response));
+                } else if (response.getResponse().getStatus() == 409) {
+                    conflicts++;
+                }
+            }
+            assertThat(created).isEqualTo(1);
+            assertThat(conflicts).isEqualTo(threads - 1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(deviceStatus(1)).isEqualTo(LOANED);
+        assertThat(deviceStatus(2)).isEqualTo(LOANED);
+        assertThat(deviceStatus(3)).isEqualTo(AVAILABLE);
+    }
+
+    @Test
+    void replaceMovesReturnsAndReopensTheBin() throws Exception {
+        int loanId = checkout(1);
+
+        // Moving the open loan hands bin 1 back and takes bin 2
+        mockMvc.perform(put("/api/loans/" + loanId).cookie(employeeToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(replaceBody(2, null)))
+                .andExpect(status().isOk());
+        assertThat(deviceStatus(1)).isEqualTo(AVAILABLE);
+        assertThat(deviceStatus(3)).isEqualTo(LOANED);
+        assertOpenLoans(1);
+        assertOpenLoans(2, loanId);
+
+        mockMvc.perform(put("/api/loans/" + loanId).cookie(employeeToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(replaceBody(2, "2026-01-02")))
+                .andExpect(status().isOk());
+        assertThat(deviceStatus(3)).isEqualTo(AVAILABLE);
+        assertOpenLoans(2);
+
+        // Reopening while another loan holds the bin is refused and changes nothing
+        int otherLoanId = checkout(2);
+        mockMvc.perform(put("/api/loans/" + loanId).cookie(employeeToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(replaceBody(2, null)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").exists());
+        assertThat(jdbcTemplate.queryForObject("SELECT returned_at IS NOT NULL FROM loan WHERE loan_id = ?",
+                Boolean.class, loanId)).isTrue();
+
+        mockMvc.perform(delete("/api/loans/" + otherLoanId).cookie(employeeToken)).andExpect(status().isOk());
+        createdLoans.remove(Integer.valueOf(otherLoanId));
+        mockMvc.perform(put("/api/loans/" + loanId).cookie(employeeToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(replaceBody(2, null)))
+                .andExpect(status().isOk());
+        assertThat(deviceStatus(3)).isEqualTo(LOANED);
+        assertOpenLoans(2, loanId);
+    }
+
+    // The open loan index (GET /api/loans/open) follows each committed change
+    private void assertOpenLoans(int binId, Integer... loanIds) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/loans/open").cookie(employeeToken).param("binId", String.valueOf(binId)))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Integer> open = new ArrayList<>();
+        objectMapper.readTree(result.getResponse().getContentAsString()).path("data")
+                .forEach(loan -> open.add(loan.path("loan_id").asInt()));
+        assertThat(open).containsExactly(loanIds);
+    }
+
+    private int checkout(int binId) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/loans").cookie(employeeToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(checkoutBody(binId)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        int loanId = loanId(result);
+        createdLoans.add(loanId);
+        return loanId;
+    }
+
+    private int loanId(MvcResult result) throws Exception {
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+        return body.path("data").path("loan_id").asInt();
+    }
+
+    private int deviceStatus(int deviceId) {
+        return jdbcTemplate.queryForObject("SELECT device_status_id FROM device WHERE device_id = ?",
+                Integer.class, deviceId);
+    }
+
+    private static String checkoutBody(int binId) {
+        return """
+                {"binId": %d, "loanStatusId": 1, "citizenId": 2, "employeeId": 1,
+                 "dueAt": "2026-12-31", "loanConditionId": 1}
+                """.formatted(binId);
+    }
+
+    private static String replaceBody(int binId, String returnedAt) {
+        return """
+                {"binId": %d, "loanStatusId": %d, "citizenId": 2, "employeeId": 1, "startAt": "2026-01-01",
+                 "dueAt": "2026-12-31", "returnedAt": %s, "loanConditionId": 1}
+                """.formatted(binId, returnedAt != null ? 2 : 1, returnedAt != null ? "\"" + returnedAt + "\"" : "null");
+    }
+}
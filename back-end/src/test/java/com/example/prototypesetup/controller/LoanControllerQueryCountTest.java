@@ -0,0 +1,82 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.service.TokenService;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+    Loan reads go through the LoanView projection: one SELECT per request, however many loans and
+    associations the response contains. A second statement means an association is being loaded again.
+*/
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class LoanControllerQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Cookie employeeToken;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        employeeToken = new Cookie("jwt-token", tokenService.generateToken(new UsernamePasswordAuthenticationToken(
+                "emp@example.com", null, List.of(new SimpleGrantedAuthority("Employee")))));
+    }
+
+    @Test
+    void getAllLoansRunsOneStatement() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/loans").cookie(employeeToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(3))
+                .andExpect(jsonPath("$.data[0].loan_status_name").value("Returned"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllLoansWithFiltersAndCursorRunsOneStatement() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/loans").cookie(employeeToken)
+                        .param("size", "1").param("cursor", "1").param("binId", "2").param("loanStatusId", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.has_more").value(true));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getLoanByIdRunsOneStatement() throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/api/loans/2").cookie(employeeToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.loan_id").value(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.service.TokenService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+    A login flood from one client is turned away with 429 by the throttle, before the credential lookup
+    and the Argon2 pool, so the rest of the API keeps answering while it lasts.
+    The flood comes from its own address (TEST-NET-3) so the throttle state it leaves behind does not
+    affect other tests.
+*/
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class LoginFloodTest {
+
+    private static final String FLOOD_ADDRESS = "203.0.113.7";
+    private static final int FLOOD_THREADS = 8;
+    private static final int SAMPLES = 50;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private Cookie employeeToken;
+
+    @BeforeEach
+    void setUp() {
+        employeeToken = new Cookie("jwt-token", tokenService.generateToken(new UsernamePasswordAuthenticationToken(
+                "emp@example.com", null, List.of(new SimpleGrantedAuthority("Employee")))));
+    }
+
+    @Test
+    void loginFloodIsThrottledWithoutSlowingOtherRequests() throws Exception {
+        // Warm-up, then the baseline without a flood
+        timeLoanReads(SAMPLES);
+        long baselineP95 = percentile95(timeLoanReads(SAMPLES));
+
+        ExecutorService executor = Executors.newFixedThreadPool(FLOOD_THREADS);
+        AtomicBoolean flooding = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(FLOOD_THREADS);
+        List<Future<int[]>> floods = new ArrayList<>();
+        long[] underFlood;
+        try {
+            for (int i = 0; i < FLOOD_THREADS; i++) {
+                floods.add(executor.submit(() -> {
+                    // [0] = attempts, [1] = 429 responses
+                    int[] counts = new int[2];
+                    started.countDown();
+                    while (flooding.get()) {
+                        int status = mockMvc.perform(post("/api/auth/login")
+                                        .with(request -> {
+                                            request.setRemoteAddr(FLOOD_ADDRESS);
+                                            return request;
+                                        })
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .content("{\"email\": \"emp@example.com\", \"password\": \"wrong-password\"}"))
+                                .andReturn().getResponse().getStatus();
+                        counts[0]++;
+                        if (status == 429) counts[1]++;
+                    }
+                    return counts;
+                }));
+            }
+            started.await(10, TimeUnit.SECONDS);
+            underFlood = timeLoanReads(SAMPLES);
+        } finally {
+            flooding.set(false);
+            executor.shutdown();
+        }
+
+        int attempts = 0;
+        int throttled = 0;
+        for (Future<int[]> flood : floods) {
+            int[] counts = flood.get(30, TimeUnit.SECONDS);
+            attempts += counts[0];
+            throttled += counts[1];
+        }
+        assertThat(throttled).isGreaterThan(0);
+        // At most the IP bucket's capacity (plus a few refilled tokens) reaches the password check
+        assertThat(attempts - throttled).isLessThanOrEqualTo(40);
+        // Generous bound: the point is that reads do not queue behind the flood
+        assertThat(percentile95(underFlood)).isLessThan(Math.max(baselineP95 * 10, TimeUnit.MILLISECONDS.toNanos(250)));
+    }
+
+    // Nanoseconds per GET /api/loans; every read must succeed
+    private long[] timeLoanReads(int count) throws Exception {
+        long[] durations = new long[count];
+        for (int i = 0; i < count; i++) {
+            long started = System.nanoTime();
+            mockMvc.perform(get("/api/loans").cookie(employeeToken)).andExpect(status().isOk());
+            durations[i] = System.nanoTime() - started;
+        }
+        return durations;
+    }
+
+    private static long percentile95(long[] durations) {
+        long[] sorted = durations.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.prototypesetup.controller;
+
+import com.example.prototypesetup.service.TokenService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+    Invalid month ranges are answered with the {"error": "<message>"} body documented in StatsAPI.md.
+*/
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StatsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private Cookie employeeToken;
+
+    @BeforeEach
+    void setUp() {
+        employeeToken = new Cookie("jwt-token", tokenService.generateToken(new UsernamePasswordAuthenticationToken(
+                "emp@example.com", null, List.of(new SimpleGrantedAuthority("Employee")))));
+    }
+
+    @Test
+    void invalidRangeReturnsDocumentedErrorBody() throws Exception {
+        mockMvc.perform(get("/api/stats/usage").cookie(employeeToken).param("from", "2026-05").param("to", "2026-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("from must not be after to"));
+
+        mockMvc.perform(get("/api/stats/usage").cookie(employeeToken).param("from", "2020-01").param("to", "2026-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("At most 60 months can be requested"));
+    }
+}
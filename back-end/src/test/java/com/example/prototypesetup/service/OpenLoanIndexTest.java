@@ -0,0 +1,74 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.AppUser;
+import com.example.prototypesetup.entity.Bin;
+import com.example.prototypesetup.entity.Loan;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Post-commit callbacks of two writes to one loan can run in either order: the index must end up
+    with the newest version whatever order they arrive in.
+*/
+class OpenLoanIndexTest {
+
+    // apply() never reads the database
+    private final OpenLoanIndex index = new OpenLoanIndex(null);
+
+    @Test
+    void olderStateArrivingLateIsIgnored() {
+        index.apply(loan(1, 2, 10L, 2, false));
+        index.apply(loan(1, 1, 10L, 1, false));
+
+        assertThat(index.isBinOut(1)).isFalse();
+        assertThat(index.findByBin(2)).map(OpenLoanIndex.OpenLoan::version).contains(2L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void returnedLoanIsNotReopenedByAnOlderState() {
+        index.apply(loan(1, 1, 10L, 0, false));
+        index.apply(loan(1, 1, 10L, 2, true));
+        index.apply(loan(1, 2, 10L, 1, false));
+
+        assertThat(index.isBinOut(1)).isFalse();
+        assertThat(index.isBinOut(2)).isFalse();
+        assertThat(index.findByCitizen(10L)).isEmpty();
+    }
+
+    @Test
+    void deletedLoanStaysOut() {
+        index.apply(loan(1, 1, 10L, 0, false));
+        index.remove(1);
+        index.apply(loan(1, 1, 10L, 5, false));
+
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void moveDropsTheOldKeys() {
+        index.apply(loan(1, 1, 10L, 0, false));
+        index.apply(loan(1, 2, 11L, 1, false));
+
+        assertThat(index.isBinOut(1)).isFalse();
+        assertThat(index.findByCitizen(10L)).isEmpty();
+        assertThat(index.findByCitizen(11L)).hasSize(1);
+    }
+
+    private static Loan loan(int loanId, int binId, Long citizenId, long version, boolean returned) {
+        Bin bin = new Bin();
+        bin.setBinId(binId);
+        AppUser citizen = new AppUser();
+        citizen.setUserId(citizenId);
+        Loan loan = new Loan();
+        loan.setLoanId(loanId);
+        loan.setBin(bin);
+        loan.setCitizen(citizen);
+        loan.setVersion(version);
+        loan.setReturnedAt(returned ? new Timestamp(System.currentTimeMillis()) : null);
+        return loan;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.prototypesetup.service;
+
+import com.example.prototypesetup.entity.AppUser;
+import com.example.prototypesetup.entity.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Citizen-only searches (every caller but Admins) never return staff accounts, and the staff
+    accounts do not take up places among the best "limit" results.
+*/
+class UserSearchIndexTest {
+
+    // put() never reads the database
+    private final UserSearchIndex index = new UserSearchIndex(null, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        index.put(user(1L, "Jane Doe", "jane.doe@example.com", "Admin"));
+        index.put(user(2L, "Jane Doe", "jane.d@example.com", "Employee"));
+        index.put(user(3L, "Jane Dow", "jdow@example.com", "Citizen"));
+    }
+
+    @Test
+    void citizensOnlySearchSkipsStaff() {
+        assertThat(index.search("jane doe", 1, true))
+                .extracting(match -> match.user().userId())
+                .containsExactly(3L);
+    }
+
+    @Test
+    void fullSearchReturnsEveryRole() {
+        assertThat(index.search("jane doe", 10, false))
+                .extracting(match -> match.user().userId())
+                .containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    private static AppUser user(Long userId, String fullName, String email, String roleName) {
+        UserRole role = new UserRole();
+        role.setRoleName(roleName);
+        AppUser user = new AppUser();
+        user.setUserId(userId);
+        user.setFullName(fullName);
+        user.setEmail(email);
+        user.setRole(role);
+        return user;
+    }
+}
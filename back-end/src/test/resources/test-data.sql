@@ -0,0 +1,75 @@
+-- Tables without an entity, only written through JDBC, as in database/initdb/cool-ddl.sql
+CREATE TABLE user_action_type (
+    user_action_type_id INT PRIMARY KEY AUTO_INCREMENT,
+    user_action_type_name VARCHAR(50) NOT NULL UNIQUE,
+    is_active BOOLEAN NOT NULL DEFAULT TRUE
+);
+
+CREATE TABLE action_log (
+    action_log_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    app_user_id BIGINT NOT NULL,
+    user_action_type_id INT NOT NULL,
+    user_record_id BIGINT,
+    loan_record_id INT,
+    device_record_id BIGINT,
+    current_url VARCHAR(500),
+    api_endpoint VARCHAR(500),
+    action_details TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_record_id) REFERENCES app_user(app_user_id) ON DELETE SET NULL,
+    FOREIGN KEY (loan_record_id) REFERENCES loan(loan_id) ON DELETE SET NULL,
+    FOREIGN KEY (device_record_id) REFERENCES device(device_id) ON DELETE SET NULL
+);
+
+CREATE TABLE loan_log (
+    loan_log_id INT PRIMARY KEY AUTO_INCREMENT,
+    loan_id INT NOT NULL,
+    app_user_id BIGINT NOT NULL,
+    loan_action_type_id INT NOT NULL,
+    success_message VARCHAR(255),
+    transaction_status_id INT NOT NULL,
+    error_details TEXT,
+    loan_timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Reference data
+INSERT INTO user_role (user_role_id, user_role_name, dl_required, is_active) VALUES
+    (1, 'Admin', FALSE, TRUE), (2, 'Employee', FALSE, TRUE), (3, 'Citizen', TRUE, TRUE);
+INSERT INTO user_action_type (user_action_type_id, user_action_type_name, is_active) VALUES
+    (1, 'CREATE', TRUE), (2, 'READ', TRUE), (3, 'UPDATE', TRUE), (4, 'DELETE', TRUE);
+INSERT INTO location (location_id, location_name) VALUES (1, 'Callahan'), (2, 'Hankins');
+INSERT INTO loan_status (loan_status_id, loan_status_name) VALUES
+    (1, 'Open'), (2, 'Returned'), (3, 'Overdue'), (4, 'Lost'), (5, 'Cancelled');
+INSERT INTO device_condition (device_condition_id, device_condition_name) VALUES (1, 'Excellent'), (2, 'Good');
+INSERT INTO device_status (device_status_id, device_status_name) VALUES
+    (1, 'Available'), (2, 'Loaned'), (3, 'Maintenance');
+INSERT INTO device_type (device_type_id, device_type_name) VALUES (1, 'Tablet'), (2, 'Laptop');
+INSERT INTO loan_action_type (loan_action_type_id, loan_action_name, is_active) VALUES
+    (1, 'Checkout', TRUE), (2, 'Return', TRUE), (3, 'Status_Change', TRUE);
+INSERT INTO transaction_status (transaction_status_id, transaction_status_name) VALUES
+    (1, 'Success'), (2, 'Failure'), (3, 'Pending');
+
+-- One employee, one citizen
+INSERT INTO app_user (app_user_id, full_name, app_user_full_name, email, password_hash, user_role_id, is_active) VALUES
+    (1, 'Emp One', 'Emp One', 'emp@example.com', 'x', 2, TRUE),
+    (2, 'Alex Martinez', 'Alex Martinez', 'alex@example.com', 'x', 3, TRUE);
+
+-- Bin 1 holds devices 1 and 2, bin 2 holds device 3
+INSERT INTO bin (bin_id, asset_tag, created_by_user_id, location_id, created_at, updated_at) VALUES
+    (1, 'BIN-0001', 1, 1, NOW(), NOW()), (2, 'BIN-0002', 1, 2, NOW(), NOW());
+INSERT INTO device (device_id, device_name, serial_number, device_type_id, device_status_id, location_id,
+                    created_by_user_id, created_at, updated_at, version) VALUES
+    (1, 'Tab A', 'SN-1', 1, 1, 1, 1, NOW(), NOW(), 0),
+    (2, 'Lap B', 'SN-2', 2, 1, 1, 1, NOW(), NOW(), 0),
+    (3, 'Tab C', 'SN-3', 1, 1, 2, 1, NOW(), NOW(), 0);
+INSERT INTO bin_device (bin_id, device_id) VALUES (1, 1), (1, 2), (2, 3);
+
+-- Three returned loans of bin 2
+INSERT INTO loan (loan_id, bin_id, loan_status_id, citizen_id, employee_id, start_at, due_at, returned_at,
+                  loan_condition_id, return_condition_id, created_at, updated_at, version) VALUES
+    (1, 2, 2, 2, 1, '2026-01-05 10:00:00', '2026-01-19 00:00:00', '2026-01-15 00:00:00', 1, 1, NOW(), NOW(), 0),
+    (2, 2, 2, 2, 1, '2026-02-02 10:00:00', '2026-02-16 00:00:00', '2026-02-10 00:00:00', 1, 2, NOW(), NOW(), 0),
+    (3, 2, 2, 2, 1, '2026-03-09 10:00:00', '2026-03-23 00:00:00', '2026-03-20 00:00:00', 2, 2, NOW(), NOW(), 0);
+
+DELETE FROM id_generator;
+INSERT INTO id_generator (generator_name, next_value) SELECT 'loan', MAX(loan_id) + 50 FROM loan;
@@ -138,6 +138,7 @@ CREATE TABLE device (
     -- Auto-updates timestamp whenever the row is modified (on update CURRENT_TIMESTAMP)
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0, -- optimistic lock counter, incremented on every update (sent to clients as the ETag)
 
     CONSTRAINT fk_device_type 
         FOREIGN KEY (device_type_id) REFERENCES device_type(device_type_id)
@@ -161,7 +162,12 @@ CREATE TABLE device (
         -- for auditing purposes, prevents deletion of an employee if they created devices (preserves the audit trail, no orphaned records, no lost accountability)
         -- to retire a user, set their role to inactive instead of deleting them. 
         ON DELETE RESTRICT -- prevents deletion of an employee if they created devices (preserves the audit trail, no orphaned records, no lost accountability)
-        ON UPDATE NO ACTION -- created_by_user_id is a surrogate key
+        ON UPDATE NO ACTION, -- created_by_user_id is a surrogate key
+
+    -- Composite indexes for the filtered device listing (GET /api/devices), ordered by device_id like the loan indexes
+    INDEX idx_device_status (device_status_id, device_id), -- devices by status (e.g. available)
+    INDEX idx_device_type (device_type_id, device_id), -- devices by type
+    INDEX idx_device_location (location_id, device_id) -- devices at a location
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci; -- MySQL's transactional storage engine to support foreign keys and transactions (required for Hibernate and FKs)
 
 -- Stores information about storage bins for organizing devices at locations. [CORE ENTITY]
@@ -216,6 +222,7 @@ CREATE TABLE loan (
     -- Auto-updates timestamp whenever the row is modified (on update CURRENT_TIMESTAMP)
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0, -- optimistic lock counter, incremented on every update (sent to clients as the ETag)
 
     CONSTRAINT fk_loan_bin
         FOREIGN KEY (bin_id) REFERENCES bin(bin_id)
@@ -245,9 +252,29 @@ CREATE TABLE loan (
     CONSTRAINT fk_loan_return_condition
         FOREIGN KEY (return_condition_id) REFERENCES device_condition(device_condition_id)
         ON DELETE SET NULL -- if a device condition is deleted, set return_condition_id to NULL
-        ON UPDATE CASCADE -- if a condition_id changes, all linked loans are updated automatically to stay in sync
+        ON UPDATE CASCADE, -- if a condition_id changes, all linked loans are updated automatically to stay in sync
+
+    -- Composite indexes for the keyset-paginated loan listing (GET /api/loans).
+    -- Each filter column is followed by loan_id so "WHERE <filter> AND loan_id > cursor ORDER BY loan_id" is a single range scan.
+    INDEX idx_loan_status_due (loan_status_id, due_at, loan_id), -- status filter, status + due date range (overdue checks)
+    INDEX idx_loan_citizen (citizen_id, loan_id), -- all loans for a citizen
+    INDEX idx_loan_employee (employee_id, loan_id), -- all loans processed by an employee
+    INDEX idx_loan_bin (bin_id, loan_id), -- loan history of a bin
+    INDEX idx_loan_due (due_at, loan_id) -- due date range without a status filter
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci; -- MySQL's transactional storage engine to support foreign keys and transactions (required for Hibernate and FKs)
+
+-- Hands out blocks of ids for tables whose entities use a pooled table generator instead of AUTO_INCREMENT,
+-- which lets Hibernate batch their inserts. [ID GENERATOR]
+-- Ids come out as (next_value - 49) .. next_value, so next_value must stay at least MAX(id) + 50
+-- (IdGeneratorInitializer checks this at startup and raises it on databases created before this table).
+CREATE TABLE id_generator (
+    generator_name VARCHAR(50) PRIMARY KEY, -- one row per generator (e.g. 'loan')
+    next_value BIGINT NOT NULL -- upper bound of the next block of ids, advanced by allocationSize (50) per block
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci; -- MySQL's transactional storage engine to support foreign keys and transactions (required for Hibernate and FKs)
 
+-- loan ids are generated by the application (see Loan.loanId); raise this if loans are inserted with explicit ids
+INSERT INTO id_generator (generator_name, next_value) VALUES ('loan', 50);
+
 -- Provides an audit trail of all significant actions taken in the system. [CORE ENTITY]
 CREATE TABLE loan_log (
     loan_log_id INT PRIMARY KEY AUTO_INCREMENT,
@@ -376,6 +403,33 @@ CREATE TABLE bin_device (
         ON UPDATE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci; -- MySQL's transactional storage engine to support foreign keys and transactions (required for Hibernate and FKs)
 
+-- ==================================================
+-- 4. REPORTING TABLES
+-- ==================================================
+
+-- Monthly device usage per location and device type, maintained in the same transaction as each
+-- checkout/return so the usage dashboard never scans loan or device. [ROLLUP]
+-- Derived data: can be rebuilt at any time from loan + bin_device (POST /api/stats/usage/rebuild).
+CREATE TABLE loan_usage_rollup (
+    usage_month DATE NOT NULL, -- first day of the month
+    location_id INT NOT NULL, -- location of the loaned bin
+    device_type_id INT NOT NULL,
+    devices_checked_out INT NOT NULL DEFAULT 0, -- devices of this type lent out in the month
+    devices_returned INT NOT NULL DEFAULT 0, -- devices of this type returned in the month
+
+    PRIMARY KEY (usage_month, location_id, device_type_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci; -- MySQL's transactional storage engine to support foreign keys and transactions (required for Hibernate and FKs)
+
+-- JWT ids (jti) revoked before their token expired, e.g. at logout. The API keeps the live ones in
+-- memory (TokenRevocationService) and deletes rows once their token has expired. [REVOKE]
+CREATE TABLE revoked_token (
+    jti CHAR(36) PRIMARY KEY, -- UUID issued in the token's jti claim
+    expires_at TIMESTAMP NOT NULL, -- token expiry: after this the row is no longer needed
+    revoked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX idx_revoked_token_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci; -- MySQL's transactional storage engine to support foreign keys and transactions (required for Hibernate and FKs)
+
 -- Re-enable foreign key checks now that all tables are created
 SET FOREIGN_KEY_CHECKS = 1;
 
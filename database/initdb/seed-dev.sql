@@ -313,6 +313,11 @@ VALUES
     'Loan for citizen Alex Martinez and BIN-0002 was cancelled before checkout by Employee Two.'
 );
 
+-- Move the loan id generator past the seeded loans so application-created loans don't collide with them
+UPDATE id_generator
+SET next_value = (SELECT COALESCE(MAX(loan_id), 0) + 50 FROM loan)
+WHERE generator_name = 'loan';
+
 -- ()
 -- =================================================
 -- END OF SEED DATA 
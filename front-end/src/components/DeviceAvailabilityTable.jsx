@@ -17,6 +17,8 @@ import { useAuth } from "../context/MockAuth";
 import { useNavigate } from "react-router-dom";
 import ViewModal from "./ViewModal";
 
+const DEVICES_PAGE_SIZE = 50;
+
 const DeviceAvailabilityTable = ({
   selectedCenter = "",
   selectedFilter = "All",
@@ -29,7 +31,9 @@ const DeviceAvailabilityTable = ({
   // STATE
   // ------------------------------
   const [devices, setDevices] = React.useState([]);
+  const [nextCursor, setNextCursor] = React.useState(null);
   const [loading, setLoading] = React.useState(true);
+  const [loadingMore, setLoadingMore] = React.useState(false);
   const [error, setError] = React.useState(null);
 
   const [openModal, setOpenModal] = React.useState(false);
@@ -51,17 +55,29 @@ const DeviceAvailabilityTable = ({
   // ------------------------------
   // FETCH REAL DEVICES FROM BACKEND
   // ------------------------------
+  // GET /api/devices is paged: one page per request, next_cursor points at the following one
+  const fetchDevicesPage = async (cursor) => {
+    const res = await fetch(
+      `/api/devices?size=${DEVICES_PAGE_SIZE}` + (cursor != null ? `&cursor=${cursor}` : "")
+    );
+
+    if (!res.ok) {
+      throw new Error("Failed to fetch devices");
+    }
+
+    const page = await res.json();
+    return {
+      data: Array.isArray(page.data) ? page.data : [],
+      nextCursor: page.has_more ? page.next_cursor : null,
+    };
+  };
+
   React.useEffect(() => {
     const loadDevices = async () => {
       try {
-        const res = await fetch("/api/devices");
-
-        if (!res.ok) {
-          throw new Error("Failed to fetch devices");
-        }
-
-        const data = await res.json();
-        setDevices(Array.isArray(data) ? data : []);
+        const page = await fetchDevicesPage(null);
+        setDevices(page.data);
+        setNextCursor(page.nextCursor);
       } catch (err) {
         console.error(err);
         setError(err.message);
@@ -73,6 +89,21 @@ const DeviceAvailabilityTable = ({
     loadDevices();
   }, []);
 
+  const handleLoadMore = async () => {
+    if (nextCursor == null || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const page = await fetchDevicesPage(nextCursor);
+      setDevices((prev) => [...prev, ...page.data]);
+      setNextCursor(page.nextCursor);
+    } catch (err) {
+      console.error(err);
+      setError(err.message);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   // ------------------------------
   // DELETE DEVICE
   // ------------------------------
@@ -282,6 +313,15 @@ const DeviceAvailabilityTable = ({
         </Table>
       </TableContainer>
 
+      {/* LOAD MORE */}
+      {nextCursor != null && (
+        <Box sx={{ display: "flex", justifyContent: "center", mb: 2 }}>
+          <Button varianttype="check" onClick={handleLoadMore}>
+            {loadingMore ? "Loading..." : "Load more"}
+          </Button>
+        </Box>
+      )}
+
       {/* MODAL */}
       <ViewModal
         open={openModal}
@@ -33,44 +33,53 @@ const LoanTable = () => {
   const [loans, setLoans] = useState([]);
   const [appUsers, setAppUsers] = useState([]);
   const [loading, setLoading] = useState(false);
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [nextCursor, setNextCursor] = useState(null);
   const [error, setError] = useState("");
 
   const LOANS_URL = "/api/loans";
+  const LOANS_PAGE_SIZE = 50;
   const USERS_URL = "/api/app-users";
 
+  // GET /api/loans is paged: returns one page and the cursor of the next one (null on the last page)
+  const fetchLoansPage = async (cursor) => {
+    const pageUrl = `${LOANS_URL}?size=${LOANS_PAGE_SIZE}` + (cursor != null ? `&cursor=${cursor}` : "");
+    const loansRes = await fetch(pageUrl, {
+      headers: { Accept: "application/json" },
+    });
+
+    const loansContentType = loansRes.headers.get("content-type") || "";
+    let loansJson;
+    if (loansContentType.includes("application/json")) {
+      loansJson = await loansRes.json();
+    } else {
+      const text = await loansRes.text();
+      console.error("Non-JSON response from /api/loans:", text);
+      throw new Error(`Server returned a non-JSON response (status ${loansRes.status}).`);
+    }
+
+    if (!loansRes.ok) {
+      const msg =
+        loansJson.error || loansJson.message || `Request failed with status ${loansRes.status}`;
+      throw new Error(msg);
+    }
+
+    return {
+      data: Array.isArray(loansJson.data) ? loansJson.data : [],
+      nextCursor: loansJson.has_more ? loansJson.next_cursor : null,
+    };
+  };
+
   useEffect(() => {
     const loadAll = async () => {
       setLoading(true);
       setError("");
 
       try {
-        // 1) LOANS (critical)
-        const loansRes = await fetch(LOANS_URL, {
-          headers: { Accept: "application/json" },
-        });
-
-        const loansContentType = loansRes.headers.get("content-type") || "";
-        let loansJson;
-        if (loansContentType.includes("application/json")) {
-          loansJson = await loansRes.json();
-        } else {
-          const text = await loansRes.text();
-          console.error("Non-JSON response from /api/loans:", text);
-          throw new Error(`Server returned a non-JSON response (status ${loansRes.status}).`);
-        }
-
-        if (!loansRes.ok) {
-          const msg =
-            loansJson.error || loansJson.message || `Request failed with status ${loansRes.status}`;
-          throw new Error(msg);
-        }
-
-        const loansData = Array.isArray(loansJson.data)
-          ? loansJson.data
-          : Array.isArray(loansJson)
-          ? loansJson
-          : [];
-        setLoans(loansData);
+        // 1) LOANS (critical) – first page only, more on demand
+        const firstPage = await fetchLoansPage(null);
+        setLoans(firstPage.data);
+        setNextCursor(firstPage.nextCursor);
 
         // 2) APP USERS (for citizen/employee names) – non-fatal if it fails
         try {
@@ -92,6 +101,7 @@ const LoanTable = () => {
         console.error("Error fetching loans:", err);
         setError(err.message || "Unable to load loans.");
         setLoans([]);
+        setNextCursor(null);
       } finally {
         setLoading(false);
       }
@@ -100,6 +110,22 @@ const LoanTable = () => {
     loadAll();
   }, [LOANS_URL, USERS_URL]);
 
+  //logic for the load more button
+  const handleLoadMore = async () => {
+    if (nextCursor == null || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const page = await fetchLoansPage(nextCursor);
+      setLoans((prev) => [...prev, ...page.data]);
+      setNextCursor(page.nextCursor);
+    } catch (err) {
+      console.error("Error fetching more loans:", err);
+      setError(err.message || "Unable to load more loans.");
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   // Map: userId -> fullName
   const userNameById = useMemo(() => {
     const map = {};
@@ -430,7 +456,9 @@ const LoanTable = () => {
                       "& td": { fontWeight: 600 },
                     }}
                   >
-                    <TableCell sx={{ textAlign: "center" }}>Total: {statusTotals.total}</TableCell>
+                    <TableCell sx={{ textAlign: "center" }}>
+                      {nextCursor != null ? "Loaded" : "Total"}: {statusTotals.total}
+                    </TableCell>
                     <TableCell colSpan={4} sx={{ textAlign: "center" }}>
                       | Open: {statusTotals.Open || 0} | Returned: {statusTotals.Returned || 0} |
                       Overdue: {statusTotals.Overdue || 0} | Lost: {statusTotals.Lost || 0} |
@@ -443,6 +471,14 @@ const LoanTable = () => {
             </Table>
           </TableContainer>
         )}
+
+        {!loading && !error && nextCursor != null && (
+          <Box sx={{ pt: 2, display: "flex", justifyContent: "center" }}>
+            <Button varianttype="check" onClick={handleLoadMore}>
+              {loadingMore ? "Loading..." : "Load more"}
+            </Button>
+          </Box>
+        )}
       </Box>
     </TableContainer>
   );